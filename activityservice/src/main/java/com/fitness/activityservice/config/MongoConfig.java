@@ -1,10 +1,72 @@
 package com.fitness.activityservice.config;
 
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.Index;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+import com.fitness.activityservice.model.IdempotencyKey;
+import com.fitness.activityservice.model.SensorSeries;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Configuration
 @EnableMongoAuditing
+@RequiredArgsConstructor
+@Slf4j
 public class MongoConfig {
 
+    private final MongoTemplate mongoTemplate;
+
+    // Static so the converters do not depend on the MongoTemplate they configure
+    @Bean
+    public static MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(SensorSeries.MongoWriter.INSTANCE, SensorSeries.MongoReader.INSTANCE));
+    }
+
+    @Value("${activity.indexes.create-on-startup:true}")
+    private boolean createIndexesOnStartup;
+
+    // Changing the TTL needs the existing idempotency_ttl index dropped first
+    @Value("${activity.idempotency.ttl:24h}")
+    private Duration idempotencyKeyTtl;
+
+    // Back the keyset-paginated history and the stats queries, and expire idempotency keys;
+    // creating an index that already exists is a no-op
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!createIndexesOnStartup) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(Activity.class).createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("startTime", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("user_history"));
+            mongoTemplate.indexOps(IdempotencyKey.class).createIndex(new Index()
+                    .on("createdAt", Sort.Direction.ASC)
+                    .expire(idempotencyKeyTtl)
+                    .named("idempotency_ttl"));
+            mongoTemplate.indexOps(ActivityRollup.class).createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("period", Sort.Direction.ASC)
+                    .on("periodStart", Sort.Direction.ASC)
+                    .named("user_period"));
+        } catch (RuntimeException e) {
+            log.warn("Could not create activity indexes: {}", e.getMessage());
+        }
+    }
 }
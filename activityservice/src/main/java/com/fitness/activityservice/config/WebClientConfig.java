@@ -1,10 +1,17 @@
 package com.fitness.activityservice.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
 @Configuration
 public class WebClientConfig {
 
@@ -14,9 +21,23 @@ public class WebClientConfig {
         return WebClient.builder();
     }
 
+    // Sized explicitly: the reactor-netty default is two connections per core, which caps request
+    // threads blocking on user-service long before Tomcat (or virtual threads) run out
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider userServiceConnectionProvider(
+            @Value("${user-service.client.max-connections:500}") int maxConnections,
+            @Value("${user-service.client.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout) {
+        return ConnectionProvider.builder("user-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .build();
+    }
+
     @Bean
-    public WebClient userServiceWebClient(WebClient.Builder builder) {
+    public WebClient userServiceWebClient(WebClient.Builder builder, ConnectionProvider userServiceConnectionProvider) {
         return builder.baseUrl("http://user-service")
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(userServiceConnectionProvider)))
                 .build();
     }
 }
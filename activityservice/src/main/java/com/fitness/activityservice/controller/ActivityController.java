@@ -1,17 +1,31 @@
 package com.fitness.activityservice.controller;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fitness.activityservice.dto.ActivityPageDTO;
 import com.fitness.activityservice.dto.ActivityRequestDTO;
 import com.fitness.activityservice.dto.ActivityResponseDTO;
+import com.fitness.activityservice.dto.ActivityStatsDTO;
+import com.fitness.activityservice.dto.BatchActivityResponseDTO;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+import com.fitness.activityservice.service.ActivityExportService;
+import com.fitness.activityservice.service.ActivityRollupService;
 import com.fitness.activityservice.service.ActivityService;
 
 import lombok.AllArgsConstructor;
@@ -21,21 +35,70 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class ActivityController {
 
+    static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final String NDJSON = "application/x-ndjson";
+
     private ActivityService activityService;
+    private ActivityExportService activityExportService;
+    private ActivityRollupService activityRollupService;
 
+    // Retries carrying the same Idempotency-Key get the original activity back instead of a new one
     @PostMapping
     public ResponseEntity<ActivityResponseDTO> createActivity(@RequestBody ActivityRequestDTO activityRequestDTO,
-            @RequestHeader("X-User-Id") String userId) {
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
 
         if (userId != null) {
             activityRequestDTO.setUserId(userId);
         }
-        ActivityResponseDTO response = activityService.createActivity(activityRequestDTO);
+        ActivityResponseDTO response = activityService.createActivityIdempotently(activityRequestDTO, idempotencyKey);
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchActivityResponseDTO> createActivities(
+            @RequestBody List<ActivityRequestDTO> activityRequestDTOs, @RequestHeader("X-User-Id") String userId) {
+        return ResponseEntity.ok(activityService.createActivities(userId, activityRequestDTOs));
+    }
+
+    // Whole history as NDJSON, gzipped when the client accepts it
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportUserActivities(@RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"activities.ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> activityExportService.exportUserActivities(userId, out, gzip));
+    }
+
+    // Per-period totals by activity type, read from rollups
+    @GetMapping("/stats")
+    public ResponseEntity<List<ActivityStatsDTO>> getUserStats(@RequestHeader("X-User-Id") String userId,
+            @RequestParam(defaultValue = "WEEK") RollupPeriod period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(activityRollupService.getStats(userId, period, from, to));
+    }
+
+    // Still a plain JSON array for existing clients; the token for the next page, if any, is in a header
     @GetMapping()
-    public ResponseEntity<List<ActivityResponseDTO>> getUserActivities(@RequestHeader("X-User-Id") String userId) {
-        return ResponseEntity.ok(activityService.getUserActivities(userId));
+    public ResponseEntity<List<ActivityResponseDTO>> getUserActivities(@RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) ActivityType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String pageToken) {
+        ActivityPageDTO page = activityService.getUserActivities(userId, type, from, to, size, pageToken);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextPageToken() != null) {
+            response.header(NEXT_PAGE_TOKEN_HEADER, page.getNextPageToken());
+        }
+        return response.body(page.getActivities());
     }
 }
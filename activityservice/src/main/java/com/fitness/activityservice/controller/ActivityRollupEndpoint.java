@@ -0,0 +1,36 @@
+package com.fitness.activityservice.controller;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.service.ActivityRollupRebuildJob;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Rebuilds rollups from raw activities: {@code POST /actuator/rollups}
+ * rebuilds every user, {@code {"userId": "..."}} in the body just one.
+ */
+@Component
+@Endpoint(id = "rollups")
+@RequiredArgsConstructor
+public class ActivityRollupEndpoint {
+
+    private final ActivityRollupRebuildJob rebuildJob;
+
+    @WriteOperation
+    public ActivityRollupRebuildJob.Result rebuild(@Nullable String userId) throws InterruptedException {
+        if (userId != null) {
+            long start = System.nanoTime();
+            int rollups = rebuildJob.rebuildUser(userId);
+            return new ActivityRollupRebuildJob.Result(1, rollups, List.of(),
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+        return rebuildJob.rebuildAll();
+    }
+}
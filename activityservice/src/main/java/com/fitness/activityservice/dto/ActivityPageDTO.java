@@ -0,0 +1,16 @@
+package com.fitness.activityservice.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityPageDTO {
+    private List<ActivityResponseDTO> activities;
+    // Opaque, null on the last page
+    private String nextPageToken;
+}
@@ -3,6 +3,7 @@ package com.fitness.activityservice.dto;
 import java.util.Map;
 
 import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.SensorSeries;
 
 import lombok.Data;
 
@@ -14,4 +15,5 @@ public class ActivityRequestDTO {
     private Integer caloriesBurned;
     private String startTime;
     private Map<String, Object> additionalMetrics;
+    private Map<String, SensorSeries> sensorSeries;
 }
@@ -3,6 +3,7 @@ package com.fitness.activityservice.dto;
 import java.util.Map;
 
 import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.SensorSeries;
 
 import lombok.Data;
 
@@ -17,4 +18,5 @@ public class ActivityResponseDTO {
     private String createdAt;
     private String updatedAt;
     private Map<String, Object> additionalMetrics;
+    private Map<String, SensorSeries> sensorSeries;
 }
@@ -0,0 +1,20 @@
+package com.fitness.activityservice.dto;
+
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityStatsDTO {
+    private RollupPeriod period;
+    private String periodStart;
+    private ActivityType type;
+    private long count;
+    private long totalDuration;
+    private long totalCaloriesBurned;
+}
@@ -0,0 +1,17 @@
+package com.fitness.activityservice.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchActivityResponseDTO {
+    private int created;
+    private int failed;
+    // One entry per submitted activity, in request order
+    private List<BatchItemResultDTO> results;
+}
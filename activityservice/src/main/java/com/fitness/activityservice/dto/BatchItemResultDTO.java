@@ -0,0 +1,26 @@
+package com.fitness.activityservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResultDTO {
+    private int index;
+    private boolean created;
+    private ActivityResponseDTO activity;
+    private String error;
+
+    public static BatchItemResultDTO created(int index, ActivityResponseDTO activity) {
+        return new BatchItemResultDTO(index, true, activity, null);
+    }
+
+    public static BatchItemResultDTO failed(int index, String error) {
+        return new BatchItemResultDTO(index, false, null, error);
+    }
+}
@@ -24,6 +24,7 @@ public class ActivityMapper {
         activity.setCaloriesBurned(activityRequestDTO.getCaloriesBurned());
         activity.setStartTime(LocalDateTime.of(LocalDate.now(), inputTime));
         activity.setAdditionalMetrics(activityRequestDTO.getAdditionalMetrics());
+        activity.setSensorSeries(activityRequestDTO.getSensorSeries());
         activity.setCreatedAt(LocalDateTime.now());
         activity.setUpdatedAt(LocalDateTime.now());
         return activity;
@@ -38,6 +39,7 @@ public class ActivityMapper {
         responseDTO.setCaloriesBurned(activity.getCaloriesBurned());
         responseDTO.setStartTime(activity.getStartTime().toLocalTime().toString());
         responseDTO.setAdditionalMetrics(activity.getAdditionalMetrics());
+        responseDTO.setSensorSeries(activity.getSensorSeries());
         responseDTO.setCreatedAt(activity.getCreatedAt().toString());
         responseDTO.setUpdatedAt(activity.getUpdatedAt().toString());
         return responseDTO;
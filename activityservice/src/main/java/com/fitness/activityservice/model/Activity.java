@@ -9,6 +9,8 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -35,4 +37,12 @@ public class Activity {
 
     @Field("metrics")
     private Map<String, Object> additionalMetrics;
+
+    // Per-sample sensor data, kept out of additionalMetrics so it can be stored compactly
+    @Field("series")
+    private Map<String, SensorSeries> sensorSeries;
+
+    // Present only while the activity still has to be published, never part of the message itself
+    @JsonIgnore
+    private OutboxState outbox;
 }
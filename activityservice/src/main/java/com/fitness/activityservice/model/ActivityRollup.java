@@ -0,0 +1,36 @@
+package com.fitness.activityservice.model;
+
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running totals of one user's activities of one type in one day or week.
+ * The ID is derived from the key, so every write can upsert the document
+ * with {@code $inc} instead of reading it first.
+ */
+@Document(collection = "activity_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityRollup {
+
+    @Id
+    private String id;
+    private String userId;
+    private RollupPeriod period;
+    private LocalDate periodStart;
+    private ActivityType type;
+    private long count;
+    private long totalDuration;
+    private long totalCaloriesBurned;
+
+    public static String idOf(String userId, RollupPeriod period, LocalDate periodStart, ActivityType type) {
+        return userId + ":" + period + ":" + periodStart + ":" + type;
+    }
+}
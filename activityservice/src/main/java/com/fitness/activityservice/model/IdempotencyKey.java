@@ -0,0 +1,38 @@
+package com.fitness.activityservice.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A client's {@code Idempotency-Key} for one activity submission. The ID is
+ * the user and key, so the unique {@code _id} index decides which of several
+ * concurrent submissions gets to create the activity. The activity ID is
+ * assigned when the key is first claimed and kept across takeovers; the
+ * owner changes with each claim. A TTL index on {@code createdAt} expires
+ * the key.
+ */
+@Document(collection = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    private String id;
+    // Hash of the request, so reusing a key for a different activity is caught
+    private String fingerprint;
+    private String activityId;
+    // Token of the submission currently holding the key; unset once it failed
+    private String owner;
+    private Instant createdAt;
+
+    public static String idOf(String userId, String key) {
+        return userId + ":" + key;
+    }
+}
@@ -0,0 +1,29 @@
+package com.fitness.activityservice.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outbox bookkeeping embedded in an {@link Activity} until it has been
+ * published to RabbitMQ. Keeping it in the same document makes writing the
+ * activity and its outbox entry a single atomic insert, which standalone
+ * Mongo can do without transactions. The relay removes it once the broker
+ * has confirmed the message.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxState {
+
+    // The entry is free to be claimed by any relay once this has passed
+    private Instant leaseUntil;
+    private String owner;
+    private int attempts;
+
+    public static OutboxState pending() {
+        return new OutboxState(Instant.EPOCH, null, 0);
+    }
+}
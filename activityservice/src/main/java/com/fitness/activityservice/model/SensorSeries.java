@@ -0,0 +1,295 @@
+package com.fitness.activityservice.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Base64;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A high-frequency sensor series (heart rate, pace, power, ...) as sample
+ * timestamps in epoch milliseconds and their values. The samples are kept
+ * in a compact binary form: decimal values are scaled to integers,
+ * timestamps are delta-of-delta encoded and values delta encoded, and every
+ * number is written as a zigzag varint. A per-second heart rate series
+ * takes about two bytes per sample this way.
+ *
+ * The binary form is what goes to Mongo ({@code {count, data}}) and into
+ * JSON ({@code {"count": n, "data": "<base64>"}}), and it is only decoded
+ * into primitive arrays the first time the samples are read. JSON input may
+ * also use the plain form {@code {"timestamps": [...], "values": [...]}}.
+ */
+@JsonSerialize(using = SensorSeries.JsonWriter.class)
+@JsonDeserialize(using = SensorSeries.JsonReader.class)
+public final class SensorSeries {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_SCALE = 6;
+
+    private final byte[] encoded;
+    private final int size;
+
+    // Decoded on first access; racing threads decode the same immutable bytes to equal arrays
+    private volatile Decoded decoded;
+
+    private record Decoded(long[] timestamps, double[] values) {
+    }
+
+    private SensorSeries(byte[] encoded, Decoded decoded) {
+        this.encoded = encoded;
+        this.size = readHeader(encoded).size();
+        this.decoded = decoded;
+    }
+
+    /**
+     * Encodes the given samples, keeping as many decimals (up to six) as the
+     * most precise value needs.
+     */
+    public static SensorSeries of(long[] timestamps, double[] values) {
+        if (timestamps.length != values.length) {
+            throw new IllegalArgumentException("Sensor series needs one timestamp per value, got "
+                    + timestamps.length + " timestamps and " + values.length + " values");
+        }
+        int scale = 0;
+        for (double value : values) {
+            if (!Double.isFinite(value)) {
+                throw new IllegalArgumentException("Sensor series values must be finite numbers");
+            }
+            scale = Math.max(scale, Math.min(MAX_SCALE, BigDecimal.valueOf(value).stripTrailingZeros().scale()));
+        }
+        long[] timestampsCopy = timestamps.clone();
+        double[] valuesCopy = values.clone();
+        return new SensorSeries(encode(timestampsCopy, valuesCopy, scale), new Decoded(timestampsCopy, valuesCopy));
+    }
+
+    /**
+     * Wraps an encoded series without decoding it.
+     */
+    public static SensorSeries fromEncoded(byte[] encoded) {
+        return new SensorSeries(encoded.clone(), null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] getEncoded() {
+        return encoded.clone();
+    }
+
+    /**
+     * The sample timestamps in epoch milliseconds. The array is shared, do not modify it.
+     */
+    public long[] getTimestamps() {
+        return decoded().timestamps();
+    }
+
+    /**
+     * The sample values. The array is shared, do not modify it.
+     */
+    public double[] getValues() {
+        return decoded().values();
+    }
+
+    private Decoded decoded() {
+        Decoded current = decoded;
+        if (current == null) {
+            current = decode(encoded);
+            decoded = current;
+        }
+        return current;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SensorSeries series && Arrays.equals(encoded, series.encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+
+    @Override
+    public String toString() {
+        return "SensorSeries[" + size + " samples, " + encoded.length + " bytes]";
+    }
+
+    // Layout: version, size, scale, then the timestamps and the scaled values, all as varints
+
+    private static byte[] encode(long[] timestamps, double[] values, int scale) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + timestamps.length * 3);
+        writeVarint(out, FORMAT_VERSION);
+        writeVarint(out, timestamps.length);
+        writeVarint(out, scale);
+
+        long previous = 0;
+        long previousDelta = 0;
+        for (long timestamp : timestamps) {
+            long delta = timestamp - previous;
+            writeVarint(out, zigzag(delta - previousDelta));
+            previousDelta = delta;
+            previous = timestamp;
+        }
+
+        double factor = Math.pow(10, scale);
+        long previousValue = 0;
+        for (double value : values) {
+            long scaled = Math.round(value * factor);
+            writeVarint(out, zigzag(scaled - previousValue));
+            previousValue = scaled;
+        }
+        return out.toByteArray();
+    }
+
+    private static Decoded decode(byte[] encoded) {
+        Header header = readHeader(encoded);
+        int[] position = { header.offset() };
+
+        long[] timestamps = new long[header.size()];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            previousDelta += unzigzag(readVarint(encoded, position));
+            previous += previousDelta;
+            timestamps[i] = previous;
+        }
+
+        double[] values = new double[header.size()];
+        double factor = Math.pow(10, header.scale());
+        long previousValue = 0;
+        for (int i = 0; i < values.length; i++) {
+            previousValue += unzigzag(readVarint(encoded, position));
+            values[i] = header.scale() == 0 ? previousValue : previousValue / factor;
+        }
+        return new Decoded(timestamps, values);
+    }
+
+    private record Header(int size, int scale, int offset) {
+    }
+
+    private static Header readHeader(byte[] encoded) {
+        int[] position = { 0 };
+        long version = readVarint(encoded, position);
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported sensor series format " + version);
+        }
+        long size = readVarint(encoded, position);
+        long scale = readVarint(encoded, position);
+        // Every sample takes at least two bytes, which also bounds what decoding will allocate
+        if (size > (encoded.length - position[0]) / 2 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Corrupt sensor series header");
+        }
+        return new Header((int) size, (int) scale, position[0]);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] in, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= in.length) {
+                throw new IllegalArgumentException("Truncated sensor series");
+            }
+            byte b = in[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt sensor series varint");
+    }
+
+    public static class JsonWriter extends JsonSerializer<SensorSeries> {
+
+        @Override
+        public void serialize(SensorSeries series, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("count", series.size());
+            generator.writeBinaryField("data", series.encoded);
+            generator.writeEndObject();
+        }
+    }
+
+    public static class JsonReader extends JsonDeserializer<SensorSeries> {
+
+        @Override
+        public SensorSeries deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonNode node = parser.readValueAsTree();
+            try {
+                if (node.hasNonNull("data")) {
+                    return new SensorSeries(Base64.getDecoder().decode(node.get("data").asText()), null);
+                }
+                JsonNode timestamps = node.path("timestamps");
+                JsonNode values = node.path("values");
+                if (!timestamps.isArray() || !values.isArray()) {
+                    return context.reportInputMismatch(SensorSeries.class,
+                            "Sensor series needs either 'data' or 'timestamps' and 'values' arrays");
+                }
+                long[] timestampArray = new long[timestamps.size()];
+                for (int i = 0; i < timestampArray.length; i++) {
+                    timestampArray[i] = timestamps.get(i).asLong();
+                }
+                double[] valueArray = new double[values.size()];
+                for (int i = 0; i < valueArray.length; i++) {
+                    valueArray[i] = values.get(i).asDouble();
+                }
+                return of(timestampArray, valueArray);
+            } catch (IllegalArgumentException e) {
+                return context.reportInputMismatch(SensorSeries.class, e.getMessage());
+            }
+        }
+    }
+
+    @WritingConverter
+    public enum MongoWriter implements Converter<SensorSeries, Document> {
+        INSTANCE;
+
+        @Override
+        public Document convert(SensorSeries series) {
+            // The count is kept next to the binary so it can be queried without decoding
+            return new Document("count", series.size()).append("data", new Binary(series.encoded));
+        }
+    }
+
+    @ReadingConverter
+    public enum MongoReader implements Converter<Document, SensorSeries> {
+        INSTANCE;
+
+        @Override
+        public SensorSeries convert(Document document) {
+            return new SensorSeries(document.get("data", Binary.class).getData(), null);
+        }
+    }
+}
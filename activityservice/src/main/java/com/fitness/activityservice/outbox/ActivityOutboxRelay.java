@@ -0,0 +1,255 @@
+package com.fitness.activityservice.outbox;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.model.Activity;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes activities that still carry an outbox entry to RabbitMQ.
+ *
+ * A single relay thread claims up to {@code batch-size} entries at a time by
+ * leasing them, publishes the whole batch on one channel and waits for the
+ * broker's publisher confirms before clearing the entries. A failed batch is
+ * released again after {@code retry-delay}. Leases make it safe to run
+ * several instances; an instance that dies mid-batch only delays its entries
+ * until the lease runs out. Delivery is at least once, every message carries
+ * the activity ID as its message ID.
+ */
+@Component
+@Slf4j
+public class ActivityOutboxRelay {
+
+    private static final String LEASE_UNTIL = "outbox.leaseUntil";
+    private static final String OWNER = "outbox.owner";
+
+    private final MongoTemplate mongoTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final String exchange;
+    private final String routingKey;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final Duration confirmTimeout;
+    private final Duration depthRefreshInterval;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final AtomicLong depth = new AtomicLong();
+    private final DistributionSummary batchSizes;
+    private final Timer publishSucceeded;
+    private final Timer publishFailed;
+
+    private volatile boolean running;
+    private Thread relayThread;
+    private boolean indexReady;
+    private long depthRefreshedAt;
+
+    public ActivityOutboxRelay(MongoTemplate mongoTemplate, RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.exchange.name}") String exchange,
+            @Value("${rabbitmq.routing.key}") String routingKey,
+            @Value("${outbox.relay.enabled:true}") boolean enabled,
+            @Value("${outbox.relay.batch-size:100}") int batchSize,
+            @Value("${outbox.relay.poll-interval:1s}") Duration pollInterval,
+            @Value("${outbox.relay.lease:30s}") Duration lease,
+            @Value("${outbox.relay.retry-delay:5s}") Duration retryDelay,
+            @Value("${outbox.relay.confirm-timeout:5s}") Duration confirmTimeout,
+            @Value("${outbox.relay.depth-refresh-interval:5s}") Duration depthRefreshInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.retryDelay = retryDelay;
+        this.confirmTimeout = confirmTimeout;
+        this.depthRefreshInterval = depthRefreshInterval;
+
+        Gauge.builder("activity.outbox.depth", depth, AtomicLong::get)
+                .description("Activities waiting to be published to RabbitMQ")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("activity.outbox.relay.batch.size")
+                .description("Activities published per relay batch")
+                .register(meterRegistry);
+        this.publishSucceeded = publishTimer(meterRegistry, "success");
+        this.publishFailed = publishTimer(meterRegistry, "failure");
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Outbox relay disabled, activities will not be published from this instance");
+            return;
+        }
+        running = true;
+        relayThread = Thread.ofPlatform().name("activity-outbox-relay").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+            relayThread.join(confirmTimeout.toMillis());
+        }
+    }
+
+    // Called after an activity is saved so it goes out right away instead of on the next poll
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                ensureIndex();
+                refreshDepth();
+                if (relayBatch() < batchSize) {
+                    // Drained for now: wait for the next activity or the poll interval
+                    wakeUps.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Outbox relay failed, retrying in {}: {}", retryDelay, e.getMessage());
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims, publishes and clears one batch.
+     *
+     * @return the number of entries claimed
+     */
+    int relayBatch() {
+        Instant now = Instant.now();
+        Query due = query(where(LEASE_UNTIL).lte(now))
+                .with(Sort.by(LEASE_UNTIL))
+                .limit(batchSize);
+        due.fields().include("_id");
+        List<String> ids = mongoTemplate.find(due, Document.class, collection()).stream()
+                .map(document -> document.get("_id").toString())
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // Another relay may claim some of the same entries; the claim token tells which ones are ours
+        String claim = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(query(where("_id").in(ids).and(LEASE_UNTIL).lte(now)),
+                new Update().set(OWNER, claim).set(LEASE_UNTIL, now.plus(lease)), Activity.class);
+        // Nothing indexes the owner, so every query on it is narrowed to the batch's IDs first
+        Query ours = query(where("_id").in(ids).and(OWNER).is(claim));
+        List<Activity> claimed = mongoTemplate.find(ours, Activity.class);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            publish(claimed);
+            sample.stop(publishSucceeded);
+        } catch (AmqpException e) {
+            sample.stop(publishFailed);
+            log.warn("Publishing {} outbox entries failed, retrying in {}: {}", claimed.size(), retryDelay,
+                    e.getMessage());
+            mongoTemplate.updateMulti(ours,
+                    new Update().inc("outbox.attempts", 1)
+                            .unset(OWNER)
+                            .set(LEASE_UNTIL, Instant.now().plus(retryDelay)),
+                    Activity.class);
+            return 0;
+        }
+
+        mongoTemplate.updateMulti(ours, new Update().unset("outbox"), Activity.class);
+        batchSizes.record(claimed.size());
+        return claimed.size();
+    }
+
+    // One channel for the whole batch, then a single wait for all confirms
+    private void publish(List<Activity> activities) {
+        rabbitTemplate.invoke(operations -> {
+            for (Activity activity : activities) {
+                operations.convertAndSend(exchange, routingKey, activity, message -> {
+                    message.getMessageProperties().setMessageId(activity.getId());
+                    return message;
+                });
+            }
+            operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+            return null;
+        });
+    }
+
+    // Only activities that still have to be published are indexed, so the index stays small
+    private void ensureIndex() {
+        if (indexReady) {
+            return;
+        }
+        mongoTemplate.indexOps(Activity.class).createIndex(new Index(LEASE_UNTIL, Sort.Direction.ASC)
+                .named("outbox_pending")
+                .partial(PartialIndexFilter.of(where(LEASE_UNTIL).exists(true))));
+        indexReady = true;
+    }
+
+    private void refreshDepth() {
+        long now = System.nanoTime();
+        if (depthRefreshedAt != 0 && now - depthRefreshedAt < depthRefreshInterval.toNanos()) {
+            return;
+        }
+        depth.set(mongoTemplate.count(query(where(LEASE_UNTIL).exists(true)), Activity.class));
+        depthRefreshedAt = now;
+    }
+
+    private String collection() {
+        return mongoTemplate.getCollectionName(Activity.class);
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("activity.outbox.publish")
+                .description("Time to publish a relay batch and receive the broker's confirms")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
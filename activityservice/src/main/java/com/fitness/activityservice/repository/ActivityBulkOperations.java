@@ -0,0 +1,18 @@
+package com.fitness.activityservice.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fitness.activityservice.model.Activity;
+
+public interface ActivityBulkOperations {
+
+    /**
+     * Inserts all activities in one unordered bulk write, so one bad document
+     * does not stop the rest.
+     *
+     * @return error messages of the failed inserts, keyed by their index in
+     *         {@code activities}
+     */
+    Map<Integer, String> insertUnordered(List<Activity> activities);
+}
@@ -0,0 +1,35 @@
+package com.fitness.activityservice.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's activity history, newest first: the start time and ID
+ * of the last activity returned. Clients only ever see it as an opaque page
+ * token.
+ */
+public record ActivityCursor(LocalDateTime startTime, String id) {
+
+    private static final char SEPARATOR = '|';
+
+    public static ActivityCursor fromToken(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+            return new ActivityCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    decoded.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((startTime.toString() + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
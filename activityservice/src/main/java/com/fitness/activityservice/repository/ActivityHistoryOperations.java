@@ -0,0 +1,26 @@
+package com.fitness.activityservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+
+public interface ActivityHistoryOperations {
+
+    /**
+     * Up to {@code limit} of a user's activities, newest first, starting after
+     * {@code after}. Served by the {@code (userId, startTime desc, _id desc)}
+     * index. {@code type}, {@code from} (inclusive), {@code to} (exclusive)
+     * and {@code after} are optional.
+     */
+    List<Activity> findHistoryPage(String userId, ActivityType type, LocalDateTime from, LocalDateTime to,
+            ActivityCursor after, int limit);
+
+    /**
+     * All of a user's activities, newest first, read lazily from a Mongo
+     * cursor with only the exported fields. The stream must be closed.
+     */
+    Stream<Activity> streamHistory(String userId);
+}
@@ -0,0 +1,64 @@
+package com.fitness.activityservice.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+class ActivityHistoryOperationsImpl implements ActivityHistoryOperations {
+
+    // Documents per cursor round trip when streaming, bounds what is held in memory at once
+    private static final int STREAM_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Activity> findHistoryPage(String userId, ActivityType type, LocalDateTime from, LocalDateTime to,
+            ActivityCursor after, int limit) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(where("userId").is(userId));
+        if (type != null) {
+            criteria.add(where("type").is(type));
+        }
+        if (from != null) {
+            criteria.add(where("startTime").gte(from));
+        }
+        if (to != null) {
+            criteria.add(where("startTime").lt(to));
+        }
+        if (after != null) {
+            // Strictly after the cursor in (startTime desc, _id desc) order, so no page repeats or skips an item
+            criteria.add(new Criteria().orOperator(
+                    where("startTime").lt(after.startTime()),
+                    where("startTime").is(after.startTime()).and("id").lt(after.id())));
+        }
+
+        Query query = new Query(new Criteria().andOperator(criteria))
+                .with(Sort.by(Sort.Direction.DESC, "startTime", "id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Activity.class);
+    }
+
+    @Override
+    public Stream<Activity> streamHistory(String userId) {
+        Query query = new Query(where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "startTime", "id"))
+                .cursorBatchSize(STREAM_BATCH_SIZE);
+        query.fields().include("userId", "type", "duration", "caloriesBurned", "startTime", "createdAt",
+                "updatedAt", "additionalMetrics", "sensorSeries");
+        return mongoTemplate.stream(query, Activity.class);
+    }
+}
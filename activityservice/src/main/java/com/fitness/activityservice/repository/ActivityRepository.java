@@ -4,8 +4,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import com.fitness.activityservice.model.Activity;
 
-public interface ActivityRepository extends MongoRepository<Activity, String> {
-
-    java.util.List<Activity> findByUserId(String userId);
+public interface ActivityRepository
+        extends MongoRepository<Activity, String>, ActivityBulkOperations, ActivityHistoryOperations {
 
 }
@@ -0,0 +1,54 @@
+package com.fitness.activityservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes a user's whole activity history as NDJSON, one activity per line.
+ * Activities are read from a Mongo cursor and written one at a time, so
+ * memory use does not grow with the size of the history; a slow client
+ * simply blocks the writes, which in turn stops the cursor from fetching
+ * further batches.
+ */
+@Service
+@RequiredArgsConstructor
+public class ActivityExportService {
+
+    private final ActivityRepository activityRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return the number of activities written
+     */
+    public long exportUserActivities(String userId, OutputStream out, boolean gzip) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+        long written = 0;
+        try (Stream<Activity> activities = activityRepository.streamHistory(userId);
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(target)) {
+            // The response stream is closed by the container, the gzip trailer still has to be written
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            for (Activity activity : (Iterable<Activity>) activities::iterator) {
+                generator.writeObject(ActivityMapper.mapToResponseDTO(activity));
+                generator.writeRaw('\n');
+                written++;
+            }
+        }
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        target.flush();
+        return written;
+    }
+}
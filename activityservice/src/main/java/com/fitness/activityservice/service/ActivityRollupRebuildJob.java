@@ -0,0 +1,182 @@
+package com.fitness.activityservice.service;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.stereotype.Component;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recomputes every user's rollups from the raw activities, for example after
+ * rollup updates failed or when rollups are introduced on existing data.
+ * Users are independent partitions and are rebuilt in parallel: Mongo sums
+ * each user's activities per day and type, the weeks are folded from those
+ * days, and the results replace the user's rollups. User IDs are read from an
+ * aggregation cursor and handed to the pool at most {@code parallelism} at a
+ * time, so neither the ID list nor the pending work has to fit in memory.
+ *
+ * Activities written for a user while that user is being rebuilt can be
+ * counted twice or not at all, so run it when traffic is low.
+ */
+@Component
+@Slf4j
+public class ActivityRollupRebuildJob {
+
+    // Every distinct user, grouped server side and read through a cursor
+    private static final Aggregation USER_IDS = newAggregation(group("userId"))
+            .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+    private final MongoTemplate mongoTemplate;
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    public ActivityRollupRebuildJob(MongoTemplate mongoTemplate,
+            @Value("${activity.rollups.rebuild.parallelism:4}") int parallelism) {
+        this.mongoTemplate = mongoTemplate;
+        this.parallelism = parallelism;
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), Thread.ofPlatform().name("activity-rollup-rebuild-", 0).factory());
+        // Rebuilds are rare, so the threads only live while one is running
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public record Result(int users, int rollups, List<String> failedUsers, long tookMillis) {
+    }
+
+    public Result rebuildAll() throws InterruptedException {
+        long start = System.nanoTime();
+        log.info("Rebuilding activity rollups for all users with parallelism {}", parallelism);
+
+        Semaphore slots = new Semaphore(parallelism);
+        AtomicInteger users = new AtomicInteger();
+        AtomicInteger rollups = new AtomicInteger();
+        List<String> failedUsers = Collections.synchronizedList(new ArrayList<>());
+        try (Stream<Document> userIds = mongoTemplate.aggregateStream(USER_IDS, Activity.class, Document.class)) {
+            Iterator<Document> iterator = userIds.iterator();
+            while (iterator.hasNext()) {
+                String userId = iterator.next().getString("_id");
+                if (userId == null) {
+                    continue;
+                }
+                slots.acquire();
+                users.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            rollups.addAndGet(rebuildUser(userId));
+                        } catch (RuntimeException e) {
+                            log.warn("Rebuilding rollups for user {} failed: {}", userId, e.getMessage());
+                            failedUsers.add(userId);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        } finally {
+            // Wait for the users still being rebuilt
+            slots.acquire(parallelism);
+        }
+        return new Result(users.get(), rollups.get(), List.copyOf(failedUsers),
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * @return the number of rollups the user has afterwards
+     */
+    public int rebuildUser(String userId) {
+        // Days are cut in the JVM's zone, the same way live updates cut them from LocalDateTime
+        Aggregation aggregation = newAggregation(
+                match(where("userId").is(userId)),
+                project("type", "duration", "caloriesBurned")
+                        .and(DateOperators.dateOf("startTime")
+                                .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()))
+                                .toString("%Y-%m-%d"))
+                        .as("day"),
+                group("day", "type")
+                        .count().as("count")
+                        .sum("duration").as("totalDuration")
+                        .sum("caloriesBurned").as("totalCaloriesBurned"));
+        List<Document> days = mongoTemplate.aggregate(aggregation, Activity.class, Document.class).getMappedResults();
+
+        Collection<ActivityRollup> rollups = fold(userId, days);
+        if (!rollups.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, ActivityRollup.class);
+            for (ActivityRollup rollup : rollups) {
+                bulk.replaceOne(query(where("id").is(rollup.getId())), rollup,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            bulk.execute();
+        }
+        // Periods the user no longer has any activities in
+        mongoTemplate.remove(query(where("userId").is(userId)
+                .and("id").nin(rollups.stream().map(ActivityRollup::getId).toList())), ActivityRollup.class);
+        return rollups.size();
+    }
+
+    // Daily sums from the aggregation into daily and weekly rollups
+    static Collection<ActivityRollup> fold(String userId, List<Document> days) {
+        Map<String, ActivityRollup> rollups = new LinkedHashMap<>();
+        for (Document day : days) {
+            Document key = day.get("_id", Document.class);
+            if (key.getString("day") == null || key.getString("type") == null) {
+                continue;
+            }
+            LocalDate date = LocalDate.parse(key.getString("day"));
+            ActivityType type = ActivityType.valueOf(key.getString("type"));
+            for (RollupPeriod period : RollupPeriod.values()) {
+                ActivityRollupService.add(rollups, userId, period, period.startOf(date), type,
+                        ((Number) day.get("count")).longValue(),
+                        ((Number) day.get("totalDuration")).longValue(),
+                        ((Number) day.get("totalCaloriesBurned")).longValue());
+            }
+        }
+        return rollups.values();
+    }
+}
@@ -0,0 +1,126 @@
+package com.fitness.activityservice.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.fitness.activityservice.dto.ActivityStatsDTO;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps daily and weekly totals per user and activity type up to date as
+ * activities are written, so summaries read a handful of rollups instead of
+ * scanning the user's activities.
+ */
+@Service
+@Slf4j
+public class ActivityRollupService {
+
+    private final MongoTemplate mongoTemplate;
+    private final Counter updateFailures;
+
+    public ActivityRollupService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.updateFailures = Counter.builder("activity.rollups.update.failures")
+                .description("Rollup updates that failed after the activities were saved")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the activities to their rollups with one unordered bulk of
+     * {@code $inc} upserts. The activities are already saved at this point,
+     * so a failure is only logged; the rebuild job repairs the totals.
+     */
+    public void record(Collection<Activity> activities) {
+        Map<String, ActivityRollup> increments = increments(activities);
+        if (increments.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, ActivityRollup.class);
+            for (ActivityRollup increment : increments.values()) {
+                bulk.upsert(query(where("id").is(increment.getId())), new Update()
+                        .setOnInsert("userId", increment.getUserId())
+                        .setOnInsert("period", increment.getPeriod())
+                        .setOnInsert("periodStart", increment.getPeriodStart())
+                        .setOnInsert("type", increment.getType())
+                        .inc("count", increment.getCount())
+                        .inc("totalDuration", increment.getTotalDuration())
+                        .inc("totalCaloriesBurned", increment.getTotalCaloriesBurned()));
+            }
+            bulk.execute();
+        } catch (RuntimeException e) {
+            updateFailures.increment();
+            log.warn("Could not update rollups for {} activities: {}", activities.size(), e.getMessage());
+        }
+    }
+
+    public List<ActivityStatsDTO> getStats(String userId, RollupPeriod period, LocalDate from, LocalDate to) {
+        Criteria criteria = where("userId").is(userId).and("period").is(period);
+        if (from != null || to != null) {
+            criteria = criteria.and("periodStart");
+            if (from != null) {
+                criteria = criteria.gte(period.startOf(from));
+            }
+            if (to != null) {
+                criteria = criteria.lte(to);
+            }
+        }
+        return mongoTemplate.find(query(criteria).with(Sort.by("periodStart", "type")), ActivityRollup.class)
+                .stream()
+                .map(rollup -> new ActivityStatsDTO(rollup.getPeriod(), rollup.getPeriodStart().toString(),
+                        rollup.getType(), rollup.getCount(), rollup.getTotalDuration(),
+                        rollup.getTotalCaloriesBurned()))
+                .toList();
+    }
+
+    // What the activities add to each rollup, merged per rollup so a batch touches every document once
+    static Map<String, ActivityRollup> increments(Collection<Activity> activities) {
+        Map<String, ActivityRollup> increments = new LinkedHashMap<>();
+        for (Activity activity : activities) {
+            if (activity.getStartTime() == null || activity.getType() == null) {
+                continue;
+            }
+            LocalDate date = activity.getStartTime().toLocalDate();
+            for (RollupPeriod period : RollupPeriod.values()) {
+                add(increments, activity.getUserId(), period, period.startOf(date), activity.getType(), 1,
+                        valueOf(activity.getDuration()), valueOf(activity.getCaloriesBurned()));
+            }
+        }
+        return increments;
+    }
+
+    static void add(Map<String, ActivityRollup> rollups, String userId, RollupPeriod period, LocalDate periodStart,
+            ActivityType type, long count, long duration, long calories) {
+        String id = ActivityRollup.idOf(userId, period, periodStart, type);
+        ActivityRollup rollup = rollups.computeIfAbsent(id,
+                key -> new ActivityRollup(key, userId, period, periodStart, type, 0, 0, 0));
+        rollup.setCount(rollup.getCount() + count);
+        rollup.setTotalDuration(rollup.getTotalDuration() + duration);
+        rollup.setTotalCaloriesBurned(rollup.getTotalCaloriesBurned() + calories);
+    }
+
+    private static long valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -1,13 +1,29 @@
 package com.fitness.activityservice.service;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.fitness.activityservice.dto.ActivityRequestDTO;
+import com.fitness.activityservice.dto.ActivityPageDTO;
 import com.fitness.activityservice.dto.ActivityResponseDTO;
+import com.fitness.activityservice.dto.BatchActivityResponseDTO;
+import com.fitness.activityservice.dto.BatchItemResultDTO;
 import com.fitness.activityservice.mapper.ActivityMapper;
 import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.OutboxState;
+import com.fitness.activityservice.outbox.ActivityOutboxRelay;
+import com.fitness.activityservice.repository.ActivityCursor;
 import com.fitness.activityservice.repository.ActivityRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -18,43 +34,148 @@ public class ActivityService {
 
     private final ActivityRepository activityRepository;
     private final UserValidationService userValidationService;
-    private final RabbitTemplate rabbitTemplate;
+    private final ActivityOutboxRelay activityOutboxRelay;
+    private final ActivityRollupService activityRollupService;
+    private final IdempotencyService idempotencyService;
+
+    @Value("${activity.batch.max-size:1000}")
+    private int maxBatchSize;
 
-    // RabbitMQ configuration properties
-    @Value("${rabbitmq.exchange.name}")
-    private String exchange;
+    @Value("${activity.history.default-page-size:50}")
+    private int defaultPageSize;
 
-    @Value("${rabbitmq.routing.key}")
-    private String routingKey;
+    @Value("${activity.history.max-page-size:200}")
+    private int maxPageSize;
 
     // create activity
     public ActivityResponseDTO createActivity(ActivityRequestDTO activityRequestDTO) {
+        return createActivity(activityRequestDTO, null);
+    }
+
+    // create activity once per idempotency key; a repeated submission gets the first one's activity back
+    public ActivityResponseDTO createActivityIdempotently(ActivityRequestDTO activityRequestDTO,
+            String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createActivity(activityRequestDTO);
+        }
+
+        IdempotencyService.Claim claim = idempotencyService.claim(activityRequestDTO.getUserId(), idempotencyKey,
+                activityRequestDTO);
+        if (claim.replay() != null) {
+            // Already saved and handed to the outbox, so nothing is published again
+            return ActivityMapper.mapToResponseDTO(claim.replay());
+        }
+        try {
+            return createActivity(activityRequestDTO, claim.activityId());
+        } catch (DuplicateKeyException e) {
+            // An earlier attempt with this key saved the activity after all: a slow one that was taken over,
+            // or one whose error came after its insert had gone through
+            Activity saved = activityRepository.findById(claim.activityId()).orElseThrow(() -> e);
+            return ActivityMapper.mapToResponseDTO(saved);
+        } catch (RuntimeException e) {
+            // Keeps the key and its activity ID, the insert may have gone through before the error
+            idempotencyService.release(claim);
+            throw e;
+        }
+    }
+
+    private ActivityResponseDTO createActivity(ActivityRequestDTO activityRequestDTO, String activityId) {
 
         boolean isValidUser = userValidationService.validateUser(activityRequestDTO.getUserId());
         if (!isValidUser) {
             throw new RuntimeException("User not found with id: " + activityRequestDTO.getUserId());
         }
 
-        // Convert ActivityRequestDTO to Activity entity
-        Activity activity = activityRepository.save(ActivityMapper.mapToEntity(activityRequestDTO));
+        // Convert ActivityRequestDTO to Activity entity; the outbox entry is written with it in the same insert
+        Activity activity = ActivityMapper.mapToEntity(activityRequestDTO);
+        activity.setId(activityId);
+        activity.setOutbox(OutboxState.pending());
+        // An insert, not a save: the ID may already be taken when an idempotency key was taken over
+        activity = activityRepository.insert(activity);
+        activityRollupService.record(List.of(activity));
 
-        // Publish activity to RabbitMQ (if needed, not shown here)
-        try {
-            rabbitTemplate.convertAndSend(exchange, routingKey, activity);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to send activity to RabbitMQ: " + e.getMessage(), e);
-        }
+        // Publishing to RabbitMQ is left to ActivityOutboxRelay
+        activityOutboxRelay.wakeUp();
 
         // Convert Activity entity to ActivityResponseDTO
         return ActivityMapper.mapToResponseDTO(activity);
     }
 
-    // get activities by userId
-    public java.util.List<ActivityResponseDTO> getUserActivities(String userId) {
-        java.util.List<Activity> activities = activityRepository.findByUserId(userId);
-        return activities.stream()
-                .map(ActivityMapper::mapToResponseDTO)
-                .collect(java.util.stream.Collectors.toList());
+    // create many activities for one user: one validation, one bulk insert, one relay wake-up
+    public BatchActivityResponseDTO createActivities(String userId, List<ActivityRequestDTO> activityRequestDTOs) {
+        if (activityRequestDTOs.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + maxBatchSize + " activities per batch");
+        }
+
+        boolean isValidUser = userValidationService.validateUser(userId);
+        if (!isValidUser) {
+            throw new RuntimeException("User not found with id: " + userId);
+        }
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[activityRequestDTOs.size()];
+        List<Activity> activities = new ArrayList<>(activityRequestDTOs.size());
+        List<Integer> positions = new ArrayList<>(activityRequestDTOs.size());
+        for (int i = 0; i < activityRequestDTOs.size(); i++) {
+            ActivityRequestDTO activityRequestDTO = activityRequestDTOs.get(i);
+            activityRequestDTO.setUserId(userId);
+            try {
+                Activity activity = ActivityMapper.mapToEntity(activityRequestDTO);
+                // IDs are assigned up front so they are known without reading the insert back
+                activity.setId(new ObjectId().toHexString());
+                activity.setOutbox(OutboxState.pending());
+                activities.add(activity);
+                positions.add(i);
+            } catch (RuntimeException e) {
+                results[i] = BatchItemResultDTO.failed(i, "Invalid activity: " + e.getMessage());
+            }
+        }
+
+        Map<Integer, String> insertErrors = activityRepository.insertUnordered(activities);
+        for (int j = 0; j < activities.size(); j++) {
+            int i = positions.get(j);
+            String error = insertErrors.get(j);
+            results[i] = error == null
+                    ? BatchItemResultDTO.created(i, ActivityMapper.mapToResponseDTO(activities.get(j)))
+                    : BatchItemResultDTO.failed(i, error);
+        }
+
+        if (activities.size() > insertErrors.size()) {
+            List<Activity> inserted = new ArrayList<>(activities.size() - insertErrors.size());
+            for (int j = 0; j < activities.size(); j++) {
+                if (!insertErrors.containsKey(j)) {
+                    inserted.add(activities.get(j));
+                }
+            }
+            activityRollupService.record(inserted);
+            activityOutboxRelay.wakeUp();
+        }
+
+        int created = activities.size() - insertErrors.size();
+        return new BatchActivityResponseDTO(created, results.length - created, Arrays.asList(results));
+    }
+
+    // get one page of a user's activities, newest first
+    public ActivityPageDTO getUserActivities(String userId, ActivityType type, LocalDateTime from, LocalDateTime to,
+            Integer pageSize, String pageToken) {
+        int size = pageSize == null ? defaultPageSize : Math.max(1, Math.min(pageSize, maxPageSize));
+        ActivityCursor after;
+        try {
+            after = pageToken == null || pageToken.isBlank() ? null : ActivityCursor.fromToken(pageToken);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        // One extra row tells whether there is a next page without a count query
+        List<Activity> activities = activityRepository.findHistoryPage(userId, type, from, to, after, size + 1);
+        String nextPageToken = null;
+        if (activities.size() > size) {
+            activities = activities.subList(0, size);
+            Activity last = activities.get(size - 1);
+            nextPageToken = new ActivityCursor(last.getStartTime(), last.getId()).toToken();
+        }
+
+        return new ActivityPageDTO(activities.stream().map(ActivityMapper::mapToResponseDTO).toList(), nextPageToken);
     }
 
 }
@@ -0,0 +1,177 @@
+package com.fitness.activityservice.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fitness.activityservice.dto.ActivityRequestDTO;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.IdempotencyKey;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Makes activity submissions with an {@code Idempotency-Key} safe to retry.
+ * The first submission claims the key by inserting it; the unique
+ * {@code _id} index makes every concurrent duplicate fail that insert, so no
+ * locks are needed. Duplicates then get the activity the first submission
+ * created, or a 409 while it is still being created.
+ *
+ * A claim that has been in flight too long can be taken over, but the
+ * activity ID it was given stays with the key. If the first submission was
+ * only slow and still saves, the activity's own unique {@code _id} lets only
+ * one of the two inserts through, so a takeover never creates a second
+ * activity. Each claim carries an owner token, so a takeover and a release
+ * only ever act on the claim they saw.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // Stable field and map key order, so equal requests hash the same
+    private static final ObjectMapper FINGERPRINT_MAPPER = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityRepository activityRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration inFlightTimeout;
+
+    /**
+     * A claimed key, with the ID the new activity must be inserted under and
+     * the token of this claim; or, for a repeated submission, the activity
+     * the first one created.
+     */
+    public record Claim(String id, String activityId, String owner, Activity replay) {
+    }
+
+    public IdempotencyService(MongoTemplate mongoTemplate, ActivityRepository activityRepository,
+            MeterRegistry meterRegistry,
+            @Value("${activity.idempotency.in-flight-timeout:30s}") Duration inFlightTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.activityRepository = activityRepository;
+        this.meterRegistry = meterRegistry;
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    public Claim claim(String userId, String key, ActivityRequestDTO request) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = IdempotencyKey.idOf(userId, key);
+        String fingerprint = fingerprint(request);
+
+        // The key can expire or be released between a failed insert and the read, so try again once
+        for (int attempt = 0; attempt < 2; attempt++) {
+            IdempotencyKey claimed = new IdempotencyKey(id, fingerprint, new ObjectId().toHexString(),
+                    new ObjectId().toHexString(), Instant.now());
+            try {
+                mongoTemplate.insert(claimed);
+                count("created");
+                return new Claim(id, claimed.getActivityId(), claimed.getOwner(), null);
+            } catch (DuplicateKeyException e) {
+                // Another submission with this key got there first
+            }
+
+            IdempotencyKey existing = mongoTemplate.findById(id, IdempotencyKey.class);
+            if (existing != null) {
+                return resolveDuplicate(existing, fingerprint);
+            }
+        }
+        count("conflict");
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "Idempotency-Key is being reused concurrently");
+    }
+
+    /**
+     * Gives the claim up after creating the activity failed, so a retry can
+     * take it over straight away instead of waiting for the in-flight
+     * timeout. The key and its activity ID stay: the failure may have come
+     * after the insert went through, and then the retry's insert of the
+     * same ID finds the activity instead of creating a second one.
+     */
+    public void release(Claim claim) {
+        try {
+            mongoTemplate.updateFirst(query(where("id").is(claim.id()).and("owner").is(claim.owner())),
+                    new Update().unset("owner"), IdempotencyKey.class);
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {}: {}", claim.id(), e.getMessage());
+        }
+    }
+
+    private Claim resolveDuplicate(IdempotencyKey existing, String fingerprint) {
+        if (!existing.getFingerprint().equals(fingerprint)) {
+            count("mismatch");
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different activity");
+        }
+
+        Optional<Activity> activity = activityRepository.findById(existing.getActivityId());
+        if (activity.isPresent()) {
+            count("replayed");
+            return new Claim(existing.getId(), existing.getActivityId(), existing.getOwner(), activity.get());
+        }
+
+        // No activity yet: the first submission is still running, failed, or died before saving
+        boolean released = existing.getOwner() == null;
+        if (!released && existing.getCreatedAt().isAfter(Instant.now().minus(inFlightTimeout))) {
+            count("conflict");
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed");
+        }
+        // Same activity ID, so if the first submission does save after all, only one insert succeeds
+        String owner = new ObjectId().toHexString();
+        IdempotencyKey takenOver = mongoTemplate.findAndModify(
+                query(where("id").is(existing.getId()).and("owner").is(existing.getOwner())),
+                new Update().set("owner", owner).set("createdAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true), IdempotencyKey.class);
+        if (takenOver == null) {
+            count("conflict");
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed");
+        }
+        count("created");
+        return new Claim(takenOver.getId(), takenOver.getActivityId(), owner, null);
+    }
+
+    static String fingerprint(ActivityRequestDTO request) {
+        try {
+            byte[] json = FINGERPRINT_MAPPER.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint activity request", e);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("activity.idempotency.requests", "outcome", outcome).increment();
+    }
+}
@@ -1,31 +1,95 @@
 package com.fitness.activityservice.service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
 
+/**
+ * Validates user IDs against user-service, caching the answer per user.
+ * Valid users are kept for {@code ttl}, unknown ones only for
+ * {@code negative-ttl}. With {@code refresh-after} set, entries older than
+ * that are refreshed in the background while the cached answer keeps being
+ * served; a failed refresh keeps the old answer, so known users can still
+ * log activities while user-service is down. Only users the cache has never
+ * seen fail in that case.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserValidationService {
+
     private final WebClient userservicewWebClient;
+    private final LoadingCache<String, Boolean> validations;
+
+    public UserValidationService(WebClient userservicewWebClient, MeterRegistry meterRegistry,
+            @Value("${user-validation.cache.max-size:100000}") long maxSize,
+            @Value("${user-validation.cache.ttl:1h}") Duration ttl,
+            @Value("${user-validation.cache.negative-ttl:30s}") Duration negativeTtl,
+            @Value("${user-validation.cache.refresh-after:5m}") Duration refreshAfter) {
+        this.userservicewWebClient = userservicewWebClient;
+
+        Caffeine<String, Boolean> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, Boolean>writing((userId, valid) -> valid ? ttl : negativeTtl))
+                .recordStats();
+        if (!refreshAfter.isZero()) {
+            builder.refreshAfterWrite(refreshAfter);
+        }
+        this.validations = builder.build(new CacheLoader<>() {
+            @Override
+            public Boolean load(String userId) {
+                return fetch(userId).block();
+            }
+
+            // Background refreshes stay on the WebClient's event loop instead of blocking a pool thread
+            @Override
+            public CompletableFuture<Boolean> asyncReload(String userId, Boolean oldValue, Executor executor) {
+                return fetch(userId).toFuture();
+            }
+        });
+
+        CaffeineCacheMetrics.monitor(meterRegistry, validations, "activity.user.validations");
+    }
 
     public boolean validateUser(String userId) {
         try {
-            String url = "/api/users/" + userId + "/validate";
-            log.info("Calling user-service: {}", url);
-
-            return userservicewWebClient.get()
-                    .uri(url)
-                    .retrieve()
-                    .bodyToMono(Boolean.class)
-                    .block();
+            return validations.get(userId);
         } catch (WebClientResponseException e) {
             throw new RuntimeException("Failed to validate user mr saddam");
         }
     }
 
+    // A definite answer from user-service; anything else is an error and is never cached
+    private Mono<Boolean> fetch(String userId) {
+        String url = "/api/users/" + userId + "/validate";
+        log.info("Calling user-service: {}", url);
+
+        return userservicewWebClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(Boolean.class)
+                .map(Boolean.TRUE::equals)
+                .defaultIfEmpty(false)
+                .onErrorResume(WebClientResponseException.class, ex -> {
+                    if (ex.getStatusCode() == HttpStatus.NOT_FOUND || ex.getStatusCode() == HttpStatus.BAD_REQUEST) {
+                        return Mono.just(false);
+                    }
+                    return Mono.error(ex);
+                });
+    }
 }
@@ -0,0 +1,87 @@
+package com.fitness.activityservice.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fitness.activityservice.config.MongoConfig;
+
+class SensorSeriesTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void roundTripsIrregularDecimalSamples() {
+        long[] timestamps = { 1_760_000_000_000L, 1_760_000_001_000L, 1_760_000_002_000L, 1_760_000_002_500L,
+                1_759_999_999_000L };
+        double[] values = { 5.32, 5.3, -0.25, 0, 1234.5 };
+
+        SensorSeries decoded = SensorSeries.fromEncoded(SensorSeries.of(timestamps, values).getEncoded());
+
+        assertThat(decoded.size()).isEqualTo(5);
+        assertThat(decoded.getTimestamps()).containsExactly(timestamps);
+        assertThat(decoded.getValues()).containsExactly(values);
+    }
+
+    @Test
+    void perSecondHeartRateTakesAboutTwoBytesPerSample() {
+        long[] timestamps = new long[3600];
+        double[] values = new double[3600];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = 1_760_000_000_000L + i * 1000L;
+            values[i] = 120 + (i % 40);
+        }
+
+        assertThat(SensorSeries.of(timestamps, values).getEncoded().length).isLessThan(2 * 3600 + 32);
+    }
+
+    @Test
+    void readsPlainJsonArraysAndWritesTheCompactForm() throws Exception {
+        SensorSeries series = objectMapper.readValue(
+                "{\"timestamps\": [1000, 2000, 3000], \"values\": [142, 145, 143]}", SensorSeries.class);
+
+        String json = objectMapper.writeValueAsString(series);
+        assertThat(objectMapper.readTree(json).get("count").asInt()).isEqualTo(3);
+        assertThat(objectMapper.readValue(json, SensorSeries.class)).isEqualTo(series);
+        assertThat(series.getValues()).containsExactly(142, 145, 143);
+    }
+
+    @Test
+    void rejectsMismatchedJsonArrays() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"timestamps\": [1000, 2000], \"values\": [142]}",
+                SensorSeries.class)).isInstanceOf(MismatchedInputException.class);
+    }
+
+    @Test
+    void isStoredAsBinaryInMongo() {
+        MongoCustomConversions conversions = MongoConfig.mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        Activity activity = new Activity();
+        activity.setSensorSeries(Map.of("heartRate",
+                SensorSeries.of(new long[] { 1000, 2000 }, new double[] { 142, 145 })));
+        Document document = new Document();
+        converter.write(activity, document);
+
+        Document stored = document.get("series", Document.class).get("heartRate", Document.class);
+        assertThat(stored.get("count")).isEqualTo(2);
+        assertThat(stored.get("data")).isInstanceOf(Binary.class);
+        assertThat(converter.read(Activity.class, document).getSensorSeries()).isEqualTo(activity.getSensorSeries());
+    }
+}
@@ -0,0 +1,163 @@
+package com.fitness.activityservice.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.fitness.activityservice.model.Activity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ActivityOutboxRelayTests {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final RabbitOperations channel = mock(RabbitOperations.class);
+    private final ActivityOutboxRelay relay = new ActivityOutboxRelay(mongoTemplate, rabbitTemplate,
+            new SimpleMeterRegistry(), "fitness.exchange", "activity.tracking", false, 100, Duration.ofSeconds(1),
+            LEASE, RETRY_DELAY, Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+    // Outbox entry owners as Mongo would hold them, and the updates the relay sent
+    private final Map<String, String> owners = new HashMap<>();
+    private final Set<String> claimedByAnotherRelay = new HashSet<>();
+    private final List<Update> updates = new ArrayList<>();
+    private final List<Query> updateQueries = new ArrayList<>();
+
+    @BeforeEach
+    void fakeMongoAndRabbit() {
+        when(mongoTemplate.getCollectionName(Activity.class)).thenReturn("activities");
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Activity.class)))
+                .thenAnswer(invocation -> {
+                    Query query = invocation.getArgument(0);
+                    Update update = invocation.getArgument(1);
+                    updateQueries.add(query);
+                    updates.add(update);
+                    Document set = (Document) update.getUpdateObject().get("$set");
+                    if (set != null && set.containsKey("outbox.owner")) {
+                        for (String id : ids(query)) {
+                            if (!claimedByAnotherRelay.contains(id)) {
+                                owners.put(id, set.getString("outbox.owner"));
+                            }
+                        }
+                    }
+                    return null;
+                });
+        when(mongoTemplate.find(any(Query.class), eq(Activity.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Object owner = query.getQueryObject().get("outbox.owner");
+            return ids(query).stream().filter(id -> owner.equals(owners.get(id))).map(this::activity).toList();
+        });
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation -> invocation
+                .<RabbitTemplate.OperationsCallback<?>>getArgument(0).doInRabbit(channel));
+    }
+
+    @Test
+    void leasesDueEntriesAndClearsThemOnceTheBrokerConfirms() {
+        due("a1", "a2");
+
+        assertThat(relay.relayBatch()).isEqualTo(2);
+
+        Query lease = updateQueries.get(0);
+        assertThat(ids(lease)).containsExactly("a1", "a2");
+        assertThat(lease.getQueryObject()).containsKey("outbox.leaseUntil");
+        Document set = (Document) updates.get(0).getUpdateObject().get("$set");
+        assertThat((Instant) set.get("outbox.leaseUntil")).isAfter(Instant.now().plus(LEASE).minusSeconds(5));
+
+        verify(channel, times(2)).convertAndSend(eq("fitness.exchange"), eq("activity.tracking"), any(Activity.class),
+                any(MessagePostProcessor.class));
+        verify(channel).waitForConfirmsOrDie(anyLong());
+        assertThat(updates.get(1).getUpdateObject().get("$unset", Document.class)).containsOnlyKeys("outbox");
+        assertThat(ids(updateQueries.get(1))).containsExactly("a1", "a2");
+        assertThat(updateQueries.get(1).getQueryObject().get("outbox.owner")).isEqualTo(set.get("outbox.owner"));
+    }
+
+    @Test
+    void entriesAnotherRelayClaimedFirstAreLeftToIt() {
+        due("a1", "a2");
+        claimedByAnotherRelay.add("a2");
+
+        assertThat(relay.relayBatch()).isEqualTo(1);
+
+        verify(channel).convertAndSend(anyString(), anyString(),
+                argThat((Activity activity) -> activity.getId().equals("a1")),
+                any(MessagePostProcessor.class));
+        verify(channel, never()).convertAndSend(anyString(), anyString(),
+                argThat((Activity activity) -> activity.getId().equals("a2")),
+                any(MessagePostProcessor.class));
+    }
+
+    @Test
+    void batchFullyClaimedByAnotherRelayIsNotPublished() {
+        due("a1");
+        claimedByAnotherRelay.add("a1");
+
+        assertThat(relay.relayBatch()).isZero();
+
+        verify(rabbitTemplate, never()).invoke(any());
+    }
+
+    @Test
+    void failedConfirmCountsTheAttemptAndRetriesAfterTheDelay() {
+        due("a1", "a2");
+        doThrow(new AmqpTimeoutException("no confirms")).when(channel).waitForConfirmsOrDie(anyLong());
+
+        assertThat(relay.relayBatch()).isZero();
+
+        Update released = updates.get(1);
+        assertThat(released.getUpdateObject().get("$inc", Document.class)).containsEntry("outbox.attempts", 1);
+        assertThat(released.getUpdateObject().get("$unset", Document.class)).containsOnlyKeys("outbox.owner");
+        Instant retryAt = (Instant) released.getUpdateObject().get("$set", Document.class).get("outbox.leaseUntil");
+        assertThat(retryAt).isBetween(Instant.now().plus(RETRY_DELAY).minusSeconds(5),
+                Instant.now().plus(RETRY_DELAY));
+        assertThat(ids(updateQueries.get(1))).containsExactly("a1", "a2");
+        assertThat(updates).hasSize(2);
+    }
+
+    private void due(String... ids) {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("activities")))
+                .thenReturn(List.of(ids).stream().map(id -> new Document("_id", id)).toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> ids(Query query) {
+        return List.copyOf((List<String>) query.getQueryObject().get("_id", Document.class).get("$in"));
+    }
+
+    private Activity activity(String id) {
+        Activity activity = new Activity();
+        activity.setId(id);
+        return activity;
+    }
+}
@@ -0,0 +1,125 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+class ActivityExportServiceTests {
+
+    private static final int MILLION = 1_000_000;
+    private static final String HEAP_LIMIT = "-Xmx32m";
+
+    @Test
+    void writesOneGzippedJsonLinePerActivity() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = new ActivityExportService(repository(3), new ObjectMapper())
+                .exportUserActivities("user-1", out, true);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().toList();
+            assertThat(written).isEqualTo(3);
+            assertThat(lines).hasSize(3);
+            JsonNode first = new ObjectMapper().readTree(lines.get(0));
+            assertThat(first.get("id").asText()).isEqualTo("activity-0");
+            assertThat(first.get("additionalMetrics").get("avgHeartRate").asInt()).isEqualTo(148);
+        }
+    }
+
+    /**
+     * Exports a million activities in a separate JVM whose heap is far too
+     * small to hold them all, so the export only passes if it really streams.
+     */
+    @Test
+    void exportsAMillionActivitiesWithinAFixedHeap() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, HEAP_LIMIT, "-XX:+UseSerialGC",
+                "-cp", System.getProperty("java.class.path"), HeapLimitedExport.class.getName())
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor(5, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(process.exitValue()).as(output).isZero();
+    }
+
+    // Checks its own result, an exception (or running out of heap) makes it exit with a failure
+    static class HeapLimitedExport {
+
+        public static void main(String[] args) throws IOException {
+            CountingOutputStream out = new CountingOutputStream();
+            long written = new ActivityExportService(repository(MILLION), new ObjectMapper())
+                    .exportUserActivities("user-1", out, true);
+            if (written != MILLION || out.count == 0) {
+                throw new IllegalStateException("Exported " + written + " of " + MILLION + " activities in "
+                        + out.count + " bytes");
+            }
+        }
+    }
+
+    // Repository whose history is generated lazily, like a Mongo cursor
+    private static ActivityRepository repository(int activities) {
+        return (ActivityRepository) Proxy.newProxyInstance(ActivityRepository.class.getClassLoader(),
+                new Class<?>[] { ActivityRepository.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("streamHistory")) {
+                        return Stream.iterate(0, i -> i + 1)
+                                .limit(activities)
+                                .map(ActivityExportServiceTests::activity);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Activity activity(int i) {
+        LocalDateTime startTime = LocalDateTime.of(2020, 1, 1, 7, 30).plusMinutes(i);
+        Activity activity = new Activity();
+        activity.setId("activity-" + i);
+        activity.setUserId("user-1");
+        activity.setType(ActivityType.RUNNING);
+        activity.setDuration(30 + i % 60);
+        activity.setCaloriesBurned(250 + i % 400);
+        activity.setStartTime(startTime);
+        activity.setCreatedAt(startTime);
+        activity.setUpdatedAt(startTime);
+        activity.setAdditionalMetrics(Map.of("distanceKm", 5.2, "avgHeartRate", 148));
+        return activity;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
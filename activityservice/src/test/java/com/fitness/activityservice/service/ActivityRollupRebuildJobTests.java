@@ -0,0 +1,66 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+
+import com.mongodb.client.result.DeleteResult;
+
+class ActivityRollupRebuildJobTests {
+
+    private static final int PARALLELISM = 3;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivityRollupRebuildJob rebuildJob = new ActivityRollupRebuildJob(mongoTemplate, PARALLELISM);
+
+    @AfterEach
+    void stopJob() {
+        rebuildJob.stop();
+    }
+
+    @Test
+    void rebuildsEveryStreamedUserWithBoundedParallelism() throws InterruptedException {
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq(Activity.class), eq(Document.class)))
+                .thenReturn(IntStream.range(0, 20).mapToObj(i -> new Document("_id", "user-" + i)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Activity.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        when(mongoTemplate.remove(any(Query.class), eq(ActivityRollup.class))).thenAnswer(invocation -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(10);
+                if ("user-7".equals(invocation.<Query>getArgument(0).getQueryObject().get("userId"))) {
+                    throw new IllegalStateException("write failed");
+                }
+                return DeleteResult.acknowledged(0);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        ActivityRollupRebuildJob.Result result = rebuildJob.rebuildAll();
+
+        assertThat(result.users()).isEqualTo(20);
+        assertThat(result.failedUsers()).containsExactly("user-7");
+        assertThat(running).hasValue(0);
+        assertThat(mostRunning.get()).isBetween(1, PARALLELISM);
+    }
+}
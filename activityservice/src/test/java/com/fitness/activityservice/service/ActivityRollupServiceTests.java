@@ -0,0 +1,79 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityRollup;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.RollupPeriod;
+
+class ActivityRollupServiceTests {
+
+    // 2026-10-18 is a Sunday, 2026-10-19 the Monday after
+    private static final LocalDate SUNDAY = LocalDate.of(2026, 10, 18);
+
+    @Test
+    void mergesActivitiesIntoDailyAndWeeklyIncrements() {
+        Map<String, ActivityRollup> increments = ActivityRollupService.increments(List.of(
+                activity(ActivityType.RUNNING, SUNDAY.atTime(7, 30), 30, 300),
+                activity(ActivityType.RUNNING, SUNDAY.atTime(18, 0), 20, 200),
+                activity(ActivityType.RUNNING, SUNDAY.plusDays(1).atTime(7, 30), 40, 400),
+                activity(ActivityType.CYCLING, SUNDAY.atTime(9, 0), 60, null)));
+
+        assertThat(increments.get(ActivityRollup.idOf("user-1", RollupPeriod.DAY, SUNDAY, ActivityType.RUNNING)))
+                .extracting(ActivityRollup::getCount, ActivityRollup::getTotalDuration,
+                        ActivityRollup::getTotalCaloriesBurned)
+                .containsExactly(2L, 50L, 500L);
+        assertThat(increments.get(ActivityRollup.idOf("user-1", RollupPeriod.WEEK, SUNDAY.minusDays(6),
+                ActivityType.RUNNING)).getCount()).isEqualTo(2);
+        assertThat(increments.get(ActivityRollup.idOf("user-1", RollupPeriod.WEEK, SUNDAY.plusDays(1),
+                ActivityType.RUNNING)).getCount()).isEqualTo(1);
+        assertThat(increments.get(ActivityRollup.idOf("user-1", RollupPeriod.DAY, SUNDAY, ActivityType.CYCLING))
+                .getTotalCaloriesBurned()).isZero();
+        assertThat(increments).hasSize(6);
+    }
+
+    @Test
+    void rebuildFoldsDailySumsIntoTheSameRollupsAsLiveUpdates() {
+        List<Activity> activities = List.of(
+                activity(ActivityType.RUNNING, SUNDAY.atTime(7, 30), 30, 300),
+                activity(ActivityType.RUNNING, SUNDAY.minusDays(2).atTime(7, 30), 45, 450),
+                activity(ActivityType.RUNNING, SUNDAY.plusDays(1).atTime(7, 30), 40, 400));
+        // What the aggregation returns for those activities
+        List<Document> days = List.of(
+                day(SUNDAY, ActivityType.RUNNING, 1, 30, 300),
+                day(SUNDAY.minusDays(2), ActivityType.RUNNING, 1, 45, 450),
+                day(SUNDAY.plusDays(1), ActivityType.RUNNING, 1, 40, 400));
+
+        Collection<ActivityRollup> rebuilt = ActivityRollupRebuildJob.fold("user-1", days);
+
+        assertThat(rebuilt).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(ActivityRollupService.increments(activities).values());
+    }
+
+    private static Activity activity(ActivityType type, LocalDateTime startTime, Integer duration, Integer calories) {
+        Activity activity = new Activity();
+        activity.setUserId("user-1");
+        activity.setType(type);
+        activity.setStartTime(startTime);
+        activity.setDuration(duration);
+        activity.setCaloriesBurned(calories);
+        return activity;
+    }
+
+    private static Document day(LocalDate day, ActivityType type, int count, int duration, int calories) {
+        return new Document("_id", new Document("day", day.toString()).append("type", type.name()))
+                .append("count", count)
+                .append("totalDuration", duration)
+                .append("totalCaloriesBurned", calories);
+    }
+}
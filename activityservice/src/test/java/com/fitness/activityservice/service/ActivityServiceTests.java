@@ -0,0 +1,165 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.activityservice.dto.ActivityPageDTO;
+import com.fitness.activityservice.dto.ActivityRequestDTO;
+import com.fitness.activityservice.dto.ActivityResponseDTO;
+import com.fitness.activityservice.dto.BatchActivityResponseDTO;
+import com.fitness.activityservice.dto.BatchItemResultDTO;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.outbox.ActivityOutboxRelay;
+import com.fitness.activityservice.repository.ActivityCursor;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+class ActivityServiceTests {
+
+    private final ActivityRepository activityRepository = mock(ActivityRepository.class);
+    private final UserValidationService userValidationService = mock(UserValidationService.class);
+    private final ActivityOutboxRelay activityOutboxRelay = mock(ActivityOutboxRelay.class);
+    private final ActivityRollupService activityRollupService = mock(ActivityRollupService.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private final ActivityService activityService = new ActivityService(activityRepository, userValidationService,
+            activityOutboxRelay, activityRollupService, idempotencyService);
+
+    @Test
+    void batchReportsMappingAndInsertFailuresPerItem() {
+        ReflectionTestUtils.setField(activityService, "maxBatchSize", 1000);
+        when(userValidationService.validateUser("user-1")).thenReturn(true);
+        // Index 1 of the insert is the third request, the second one never gets that far
+        when(activityRepository.insertUnordered(anyList())).thenReturn(Map.of(1, "E11000 duplicate key"));
+
+        BatchActivityResponseDTO response = activityService.createActivities("user-1",
+                List.of(request("07:30"), request("not a time"), request("08:15"), request("18:00")));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(BatchItemResultDTO::getIndex).containsExactly(0, 1, 2, 3);
+        assertThat(response.getResults()).extracting(BatchItemResultDTO::isCreated)
+                .containsExactly(true, false, false, true);
+        assertThat(response.getResults().get(1).getError()).startsWith("Invalid activity");
+        assertThat(response.getResults().get(2).getError()).contains("duplicate key");
+        assertThat(response.getResults().get(3).getActivity().getUserId()).isEqualTo("user-1");
+
+        verify(userValidationService, times(1)).validateUser("user-1");
+        verify(activityOutboxRelay).wakeUp();
+        verify(activityRollupService).record(argThat(inserted -> inserted.size() == 2));
+    }
+
+    @Test
+    void repeatedSubmissionReturnsTheFirstActivityWithoutPublishingAgain() {
+        ActivityRequestDTO request = request("07:30");
+        request.setUserId("user-1");
+        Activity first = activity("a1", LocalDateTime.of(2026, 10, 18, 7, 30));
+        when(idempotencyService.claim("user-1", "key-1", request))
+                .thenReturn(new IdempotencyService.Claim("user-1:key-1", "a1", "o1", first));
+
+        ActivityResponseDTO response = activityService.createActivityIdempotently(request, "key-1");
+
+        assertThat(response.getId()).isEqualTo("a1");
+        verify(activityRepository, never()).insert(any(Activity.class));
+        verify(activityOutboxRelay, never()).wakeUp();
+    }
+
+    @Test
+    void failedSubmissionReleasesItsIdempotencyKey() {
+        ActivityRequestDTO request = request("07:30");
+        request.setUserId("user-1");
+        IdempotencyService.Claim claim = new IdempotencyService.Claim("user-1:key-1", "a1", "o1", null);
+        when(idempotencyService.claim("user-1", "key-1", request)).thenReturn(claim);
+        when(userValidationService.validateUser("user-1")).thenReturn(true);
+        when(activityRepository.insert(any(Activity.class))).thenThrow(new IllegalStateException("Mongo is down"));
+
+        assertThatThrownBy(() -> activityService.createActivityIdempotently(request, "key-1"))
+                .isInstanceOf(IllegalStateException.class);
+        verify(activityRepository).insert(argThat((Activity activity) -> activity.getId().equals("a1")));
+        verify(idempotencyService).release(claim);
+    }
+
+    @Test
+    void takenOverSubmissionReturnsTheActivityTheSlowFirstSubmissionSaved() {
+        ActivityRequestDTO request = request("07:30");
+        request.setUserId("user-1");
+        IdempotencyService.Claim claim = new IdempotencyService.Claim("user-1:key-1", "a1", "o2", null);
+        when(idempotencyService.claim("user-1", "key-1", request)).thenReturn(claim);
+        when(userValidationService.validateUser("user-1")).thenReturn(true);
+        when(activityRepository.insert(any(Activity.class))).thenThrow(new DuplicateKeyException("E11000"));
+        Activity first = activity("a1", LocalDateTime.of(2026, 10, 18, 7, 30));
+        when(activityRepository.findById("a1")).thenReturn(Optional.of(first));
+
+        ActivityResponseDTO response = activityService.createActivityIdempotently(request, "key-1");
+
+        assertThat(response.getId()).isEqualTo("a1");
+        verify(activityRollupService, never()).record(any());
+        verify(idempotencyService, never()).release(any());
+    }
+
+    @Test
+    void historyPagesCarryATokenPointingAfterTheLastActivity() {
+        ReflectionTestUtils.setField(activityService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(activityService, "maxPageSize", 200);
+        LocalDateTime now = LocalDateTime.of(2026, 10, 18, 7, 30);
+        when(activityRepository.findHistoryPage(eq("user-1"), isNull(), isNull(), isNull(), isNull(), eq(3)))
+                .thenReturn(List.of(activity("c", now), activity("b", now), activity("a", now.minusDays(1))));
+
+        ActivityPageDTO page = activityService.getUserActivities("user-1", null, null, null, null, null);
+
+        assertThat(page.getActivities()).extracting(ActivityResponseDTO::getId).containsExactly("c", "b");
+        assertThat(ActivityCursor.fromToken(page.getNextPageToken())).isEqualTo(new ActivityCursor(now, "b"));
+
+        when(activityRepository.findHistoryPage(eq("user-1"), isNull(), isNull(), isNull(),
+                eq(new ActivityCursor(now, "b")), eq(3))).thenReturn(List.of(activity("a", now.minusDays(1))));
+
+        ActivityPageDTO last = activityService.getUserActivities("user-1", null, null, null, null,
+                page.getNextPageToken());
+        assertThat(last.getActivities()).extracting(ActivityResponseDTO::getId).containsExactly("a");
+        assertThat(last.getNextPageToken()).isNull();
+    }
+
+    @Test
+    void rejectsTamperedPageToken() {
+        assertThatThrownBy(() -> activityService.getUserActivities("user-1", null, null, null, 10, "bm90LWEtdG9rZW4"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    private static Activity activity(String id, LocalDateTime startTime) {
+        Activity activity = new Activity();
+        activity.setId(id);
+        activity.setUserId("user-1");
+        activity.setStartTime(startTime);
+        activity.setCreatedAt(startTime);
+        activity.setUpdatedAt(startTime);
+        return activity;
+    }
+
+    private static ActivityRequestDTO request(String startTime) {
+        ActivityRequestDTO request = new ActivityRequestDTO();
+        request.setType(ActivityType.RUNNING);
+        request.setDuration(30);
+        request.setCaloriesBurned(300);
+        request.setStartTime(startTime);
+        return request;
+    }
+}
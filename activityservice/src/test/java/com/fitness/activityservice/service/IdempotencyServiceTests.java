@@ -0,0 +1,144 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fitness.activityservice.dto.ActivityRequestDTO;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.IdempotencyKey;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IdempotencyServiceTests {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ActivityRepository activityRepository = mock(ActivityRepository.class);
+    private final IdempotencyService idempotencyService = new IdempotencyService(mongoTemplate, activityRepository,
+            new SimpleMeterRegistry(), Duration.ofSeconds(30));
+
+    private final ActivityRequestDTO request = request(30);
+
+    @Test
+    void firstSubmissionClaimsTheKeyWithAFreshActivityId() {
+        IdempotencyService.Claim claim = idempotencyService.claim("user-1", "key-1", request);
+
+        assertThat(claim.id()).isEqualTo("user-1:key-1");
+        assertThat(claim.activityId()).isNotBlank();
+        assertThat(claim.replay()).isNull();
+    }
+
+    @Test
+    void duplicateGetsTheActivityTheFirstSubmissionCreated() {
+        losesInsertRaceTo(existing(IdempotencyService.fingerprint(request), Instant.now()));
+        Activity activity = new Activity();
+        activity.setId("a1");
+        when(activityRepository.findById("a1")).thenReturn(Optional.of(activity));
+
+        assertThat(idempotencyService.claim("user-1", "key-1", request).replay()).isSameAs(activity);
+    }
+
+    @Test
+    void duplicateWhileTheFirstSubmissionIsStillRunningConflicts() {
+        losesInsertRaceTo(existing(IdempotencyService.fingerprint(request), Instant.now()));
+        when(activityRepository.findById("a1")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> idempotencyService.claim("user-1", "key-1", request))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void reusingAKeyForADifferentActivityIsRejected() {
+        losesInsertRaceTo(existing(IdempotencyService.fingerprint(request(45)), Instant.now()));
+
+        assertThatThrownBy(() -> idempotencyService.claim("user-1", "key-1", request))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    @Test
+    void staleClaimIsTakenOverUnderTheSameActivityId() {
+        losesInsertRaceTo(existing(IdempotencyService.fingerprint(request), Instant.now().minusSeconds(60)));
+        when(activityRepository.findById("a1")).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(IdempotencyKey.class)))
+                .thenAnswer(invocation -> new IdempotencyKey("user-1:key-1", IdempotencyService.fingerprint(request),
+                        "a1", "o2", Instant.now()));
+
+        IdempotencyService.Claim claim = idempotencyService.claim("user-1", "key-1", request);
+
+        assertThat(claim.activityId()).isEqualTo("a1");
+        assertThat(claim.owner()).isNotEqualTo("o1");
+        verify(mongoTemplate).findAndModify(argThat((Query query) -> query.getQueryObject().get("owner").equals("o1")),
+                any(Update.class), any(FindAndModifyOptions.class), eq(IdempotencyKey.class));
+    }
+
+    @Test
+    void releasingKeepsTheKeyAndOnlyGivesUpTheClaim() {
+        idempotencyService.release(new IdempotencyService.Claim("user-1:key-1", "a1", "o1", null));
+
+        verify(mongoTemplate).updateFirst(
+                argThat((Query query) -> query.getQueryObject().get("owner").equals("o1")),
+                argThat((Update update) -> update.getUpdateObject().get("$unset", Document.class).containsKey("owner")),
+                eq(IdempotencyKey.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(IdempotencyKey.class));
+    }
+
+    @Test
+    void retryAfterAFailureTakesTheReleasedKeyOverUnderTheSameActivityId() {
+        IdempotencyKey released = existing(IdempotencyService.fingerprint(request), Instant.now());
+        released.setOwner(null);
+        losesInsertRaceTo(released);
+        when(activityRepository.findById("a1")).thenReturn(Optional.empty());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(IdempotencyKey.class)))
+                .thenAnswer(invocation -> new IdempotencyKey("user-1:key-1", IdempotencyService.fingerprint(request),
+                        "a1", "o2", Instant.now()));
+
+        IdempotencyService.Claim claim = idempotencyService.claim("user-1", "key-1", request);
+
+        assertThat(claim.activityId()).isEqualTo("a1");
+        assertThat(claim.replay()).isNull();
+    }
+
+    private void losesInsertRaceTo(IdempotencyKey existing) {
+        when(mongoTemplate.insert(any(IdempotencyKey.class))).thenThrow(new DuplicateKeyException("E11000"));
+        when(mongoTemplate.findById("user-1:key-1", IdempotencyKey.class)).thenReturn(existing);
+    }
+
+    private static IdempotencyKey existing(String fingerprint, Instant createdAt) {
+        return new IdempotencyKey("user-1:key-1", fingerprint, "a1", "o1", createdAt);
+    }
+
+    private static ActivityRequestDTO request(int duration) {
+        ActivityRequestDTO request = new ActivityRequestDTO();
+        request.setUserId("user-1");
+        request.setType(ActivityType.RUNNING);
+        request.setDuration(duration);
+        request.setStartTime("07:30");
+        return request;
+    }
+}
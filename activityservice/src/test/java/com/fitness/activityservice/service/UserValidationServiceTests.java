@@ -0,0 +1,83 @@
+package com.fitness.activityservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class UserValidationServiceTests {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean userServiceDown = new AtomicBoolean();
+
+    // user-service stand-in: "known-*" users exist, everyone else does not
+    private final WebClient webClient = WebClient.builder()
+            .exchangeFunction(request -> {
+                calls.incrementAndGet();
+                if (userServiceDown.get()) {
+                    return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                }
+                boolean exists = request.url().getPath().contains("/known-");
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(String.valueOf(exists))
+                        .build());
+            })
+            .build();
+
+    @Test
+    void repeatedValidationsOfSameUserCallUserServiceOnce() {
+        UserValidationService service = service(Duration.ofMinutes(1), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.validateUser("known-1")).isTrue();
+            assertThat(service.validateUser("ghost")).isFalse();
+        }
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void negativeResultsExpireQuickly() throws InterruptedException {
+        UserValidationService service = service(Duration.ofMillis(50), Duration.ZERO);
+
+        assertThat(service.validateUser("ghost")).isFalse();
+        Thread.sleep(100);
+        assertThat(service.validateUser("ghost")).isFalse();
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void servesKnownUsersFromCacheWhileUserServiceIsDown() throws InterruptedException {
+        UserValidationService service = service(Duration.ofSeconds(30), Duration.ofMillis(50));
+        assertThat(service.validateUser("known-1")).isTrue();
+
+        userServiceDown.set(true);
+        Thread.sleep(100);
+
+        // Triggers a background refresh that fails, the cached answer is kept
+        assertThat(service.validateUser("known-1")).isTrue();
+        Thread.sleep(100);
+        assertThat(service.validateUser("known-1")).isTrue();
+
+        assertThatThrownBy(() -> service.validateUser("known-2")).isInstanceOf(RuntimeException.class);
+    }
+
+    private UserValidationService service(Duration negativeTtl, Duration refreshAfter) {
+        return new UserValidationService(webClient, new SimpleMeterRegistry(), 1000, Duration.ofHours(1),
+                negativeTtl, refreshAfter);
+    }
+}
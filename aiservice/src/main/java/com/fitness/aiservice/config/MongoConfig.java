@@ -1,10 +1,43 @@
 package com.fitness.aiservice.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import com.fitness.aiservice.model.CachedRecommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @Configuration
 @EnableMongoAuditing
+@RequiredArgsConstructor
+@Slf4j
 public class MongoConfig {
 
-}
\ No newline at end of file
+    private final MongoTemplate mongoTemplate;
+
+    // Changing the TTL needs the existing recommendation_cache_ttl index dropped first
+    @Value("${ai.recommendation-cache.ttl:7d}")
+    private Duration recommendationCacheTtl;
+
+    // Expire cached recommendations; creating an index that already exists is a no-op
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        try {
+            mongoTemplate.indexOps(CachedRecommendation.class).createIndex(new Index()
+                    .on("createdAt", Sort.Direction.ASC)
+                    .expire(recommendationCacheTtl)
+                    .named("recommendation_cache_ttl"));
+        } catch (RuntimeException e) {
+            log.warn("Could not create recommendation cache indexes: {}", e.getMessage());
+        }
+    }
+}
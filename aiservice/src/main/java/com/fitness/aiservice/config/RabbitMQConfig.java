@@ -3,7 +3,9 @@ package com.fitness.aiservice.config;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,9 +24,21 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing.key}")
     private String routingKey;
 
+    @Value("${rabbitmq.dead-letter.exchange}")
+    private String deadLetterExchange;
+    @Value("${rabbitmq.dead-letter.queue}")
+    private String deadLetterQueue;
+    @Value("${rabbitmq.redrive.queue}")
+    private String redriveQueue;
+    @Value("${rabbitmq.redrive.parking-queue}")
+    private String parkingQueue;
+
+    // Rejected messages go to the dead letter exchange; must match activity-service's declaration
     @Bean
     public Queue activityQueue() {
-        return new Queue(queue, true);
+        return QueueBuilder.durable(queue)
+                .deadLetterExchange(deadLetterExchange)
+                .build();
     }
 
     @Bean
@@ -37,6 +51,37 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(activityQueue).to(activityExchange).with(routingKey);
     }
 
+    // Fanout: dead letters keep the routing key they were published with, which is activity-service's
+    @Bean
+    public FanoutExchange deadLetterExchange() {
+        return new FanoutExchange(deadLetterExchange);
+    }
+
+    @Bean
+    public Queue deadLetterQueue() {
+        return QueueBuilder.durable(deadLetterQueue).build();
+    }
+
+    @Bean
+    public Binding deadLetterBinding(Queue deadLetterQueue, FanoutExchange deadLetterExchange) {
+        return BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange);
+    }
+
+    // Nothing consumes it: messages sit here until their expiration and are then dead-lettered back to the activity queue
+    @Bean
+    public Queue redriveQueue() {
+        return QueueBuilder.durable(redriveQueue)
+                .deadLetterExchange(exchange)
+                .deadLetterRoutingKey(routingKey)
+                .build();
+    }
+
+    // Messages that failed every re-drive, kept for a look by hand
+    @Bean
+    public Queue parkingQueue() {
+        return QueueBuilder.durable(parkingQueue).build();
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
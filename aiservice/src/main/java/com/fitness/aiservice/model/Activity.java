@@ -16,4 +16,5 @@ public class Activity {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Map<String, Object> additionalMetrics;
+    private Map<String, SensorSeries> sensorSeries;
 }
@@ -0,0 +1,51 @@
+package com.fitness.aiservice.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The activity-independent part of a recommendation, keyed by the
+ * fingerprint of the activity it was generated for. A TTL index on
+ * {@code createdAt} expires it.
+ */
+@Document(collection = "recommendation_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedRecommendation {
+
+    @Id
+    private String fingerprint;
+    private String recommendation;
+    private List<String> improvements;
+    private List<String> suggestions;
+    private List<String> safetyMeasures;
+    private Instant createdAt;
+
+    public static CachedRecommendation of(String fingerprint, Recommendation recommendation) {
+        return new CachedRecommendation(fingerprint, recommendation.getRecommendation(),
+                recommendation.getImprovements(), recommendation.getSuggestions(),
+                recommendation.getSafetyMeasures(), Instant.now());
+    }
+
+    public Recommendation toRecommendation(Activity activity) {
+        return Recommendation.builder()
+                .activityId(activity.getId())
+                .userId(activity.getUserId())
+                .activityType(activity.getType())
+                .recommendation(recommendation)
+                .improvements(improvements)
+                .suggestions(suggestions)
+                .safetyMeasures(safetyMeasures)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
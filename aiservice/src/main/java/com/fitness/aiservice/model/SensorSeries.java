@@ -0,0 +1,167 @@
+package com.fitness.aiservice.model;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Read side of activity-service's sensor series: a high-frequency series of
+ * samples sent as {@code {"count": n, "data": "<base64>"}}, where the data
+ * holds delta encoded timestamps and scaled values as zigzag varints. The
+ * samples are only decoded when they are first read, so messages whose
+ * series are never looked at skip the work.
+ */
+@JsonDeserialize(using = SensorSeries.JsonReader.class)
+public final class SensorSeries {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final byte[] encoded;
+    private final int size;
+
+    private volatile Decoded decoded;
+
+    private record Decoded(long[] timestamps, double[] values) {
+    }
+
+    public SensorSeries(byte[] encoded) {
+        this.encoded = encoded;
+        this.size = readHeader(encoded)[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The sample timestamps in epoch milliseconds. The array is shared, do not modify it.
+     */
+    public long[] getTimestamps() {
+        return decoded().timestamps();
+    }
+
+    /**
+     * The sample values. The array is shared, do not modify it.
+     */
+    public double[] getValues() {
+        return decoded().values();
+    }
+
+    /**
+     * A short description of the series for prompts, e.g. "3600 samples over 60 min, min 112, avg 131.4, max 158".
+     */
+    public String summary() {
+        if (size == 0) {
+            return "no samples";
+        }
+        double[] values = getValues();
+        long[] timestamps = getTimestamps();
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double sum = 0;
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+        long minutes = Math.round((timestamps[size - 1] - timestamps[0]) / 60_000.0);
+        return String.format("%d samples over %d min, min %s, avg %.1f, max %s", size, minutes, format(min),
+                sum / size, format(max));
+    }
+
+    @Override
+    public String toString() {
+        return "SensorSeries[" + size + " samples]";
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private Decoded decoded() {
+        Decoded current = decoded;
+        if (current == null) {
+            current = decode(encoded);
+            decoded = current;
+        }
+        return current;
+    }
+
+    private static Decoded decode(byte[] encoded) {
+        int[] header = readHeader(encoded);
+        int[] position = { header[2] };
+
+        long[] timestamps = new long[header[0]];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            previousDelta += unzigzag(readVarint(encoded, position));
+            previous += previousDelta;
+            timestamps[i] = previous;
+        }
+
+        double[] values = new double[header[0]];
+        double factor = Math.pow(10, header[1]);
+        long previousValue = 0;
+        for (int i = 0; i < values.length; i++) {
+            previousValue += unzigzag(readVarint(encoded, position));
+            values[i] = previousValue / factor;
+        }
+        return new Decoded(timestamps, values);
+    }
+
+    // Size, scale and the offset of the first sample
+    private static int[] readHeader(byte[] encoded) {
+        int[] position = { 0 };
+        long version = readVarint(encoded, position);
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported sensor series format " + version);
+        }
+        long size = readVarint(encoded, position);
+        long scale = readVarint(encoded, position);
+        if (size > (encoded.length - position[0]) / 2 || scale > 6) {
+            throw new IllegalArgumentException("Corrupt sensor series header");
+        }
+        return new int[] { (int) size, (int) scale, position[0] };
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarint(byte[] in, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= in.length) {
+                throw new IllegalArgumentException("Truncated sensor series");
+            }
+            byte b = in[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt sensor series varint");
+    }
+
+    public static class JsonReader extends JsonDeserializer<SensorSeries> {
+
+        @Override
+        public SensorSeries deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonNode data = parser.<JsonNode>readValueAsTree().path("data");
+            if (!data.isTextual()) {
+                return context.reportInputMismatch(SensorSeries.class, "Sensor series has no 'data'");
+            }
+            try {
+                return new SensorSeries(Base64.getDecoder().decode(data.asText()));
+            } catch (IllegalArgumentException e) {
+                return context.reportInputMismatch(SensorSeries.class, e.getMessage());
+            }
+        }
+    }
+}
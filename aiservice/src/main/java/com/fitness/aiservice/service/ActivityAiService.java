@@ -1,127 +1,162 @@
 package com.fitness.aiservice.service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.model.SensorSeries;
+import com.fitness.aiservice.service.GeminiResponseReader.Analysis;
+import com.fitness.aiservice.service.GeminiResponseReader.GeminiAnswer;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ActivityAiService {
 
     private final GeminiService geminiService;
+    private final RecommendationCache recommendationCache;
+    private final MicroBatcher<PendingActivity, Recommendation> batcher;
 
-    public Recommendation generateRecommendation(Activity activity) {
-        String prompt = createPromptForActivity(activity);
-        String response = geminiService.getAnswer(prompt);
-        return processAiResponse(activity, response);
-    }
-
-    private Recommendation processAiResponse(Activity activity, String aiResponse) {
+    private final DistributionSummary tokensPerRecommendation;
+    private final Counter batchFallbacks;
 
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(aiResponse);
-            JsonNode textNode = rootNode.path("candidates").get(0).path("content").path("parts").get(0).path("text");
-            String jsonContent = textNode.asText().replaceAll("```json\\n", "").replaceAll("\\n```", "").trim();
-            JsonNode parsedJson = objectMapper.readTree(jsonContent);
-            JsonNode analysisNode = parsedJson.path("analysis");
-            StringBuilder fullAnalysis = new StringBuilder();
-            addAnalysisSection(fullAnalysis, analysisNode, "overall", "Overall: ");
-            addAnalysisSection(fullAnalysis, analysisNode, "pace", "Pace: ");
-            addAnalysisSection(fullAnalysis, analysisNode, "heartRate", "Heart Rate: ");
-            addAnalysisSection(fullAnalysis, analysisNode, "caloriesBurned", "Calories: ");
-
-            List<String> improvements = extractImprovements(parsedJson.path("improvements"));
-            List<String> suggestions = extractSuggestions(parsedJson.path("suggestions"));
-            List<String> safetyMeasures = extractSafetyInstructions(parsedJson.path("safety"));
-
-            return Recommendation.builder()
-                    .activityId(activity.getId())
-                    .userId(activity.getUserId())
-                    .activityType(activity.getType())
-                    .recommendation(fullAnalysis.toString().trim())
-                    .improvements(improvements)
-                    .suggestions(suggestions)
-                    .safetyMeasures(safetyMeasures)
-                    .createdAt(LocalDateTime.now())
-                    .build();
+    private record PendingActivity(Activity activity, String fingerprint) {
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing AI response: {}", e.getMessage());
-            e.printStackTrace();
-            return Recommendation.builder()
-                    .activityId(activity.getId())
-                    .userId(activity.getUserId())
-                    .activityType(activity.getType())
-                    .recommendation("Error processing AI response. Please try again later.")
-                    .improvements(Collections.singletonList("No specific improvements provided"))
-                    .suggestions(Collections.singletonList("No specific suggestions provided"))
-                    .safetyMeasures(Collections.singletonList("No specific safety measures provided"))
-                    .createdAt(LocalDateTime.now())
-                    .build();
-        }
+    public ActivityAiService(GeminiService geminiService, RecommendationCache recommendationCache,
+            MeterRegistry meterRegistry,
+            @Value("${ai.gemini.batch.max-size:8}") int batchMaxSize,
+            @Value("${ai.gemini.batch.linger:200ms}") Duration batchLinger) {
+        this.geminiService = geminiService;
+        this.recommendationCache = recommendationCache;
+        this.batcher = batchMaxSize > 1
+                ? new MicroBatcher<>("ai.gemini", batchMaxSize, batchLinger, meterRegistry, this::askGeminiTogether)
+                : null;
+
+        this.tokensPerRecommendation = DistributionSummary.builder("ai.gemini.tokens.per.recommendation")
+                .description("Gemini tokens (prompt and answer) spent per recommendation")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.batchFallbacks = Counter.builder("ai.gemini.batch.fallbacks")
+                .description("Activities asked for on their own because their batch answer could not be used")
+                .register(meterRegistry);
+    }
 
+    // Activities that look like one seen before reuse its recommendation instead of asking Gemini again
+    public Mono<Recommendation> generateRecommendation(Activity activity) {
+        String fingerprint = recommendationCache.fingerprint(activity);
+        PendingActivity pending = new PendingActivity(activity, fingerprint);
+        return recommendationCache.lookup(fingerprint)
+                .map(cached -> cached.toRecommendation(activity))
+                .switchIfEmpty(Mono.defer(() -> batcher == null ? askGemini(pending) : batcher.submit(pending)));
     }
 
-    private List<String> extractImprovements(JsonNode node) {
-        List<String> improvements = new ArrayList<>();
+    private Mono<Recommendation> askGemini(PendingActivity pending) {
+        Activity activity = pending.activity();
+        long start = System.nanoTime();
+        return Mono.fromCallable(() -> createPromptForActivity(activity))
+                .flatMap(geminiService::answer)
+                .map(response -> {
+                    recommendationCache.recordGeminiRequest(Duration.ofNanos(System.nanoTime() - start));
+                    try {
+                        GeminiAnswer answer = GeminiResponseReader.read(response);
+                        recordTokens(answer, 1);
+                        return answered(pending, processAiResponse(activity, answer.analyses().getFirst()));
+                    } catch (Exception e) {
+                        // Fails the message rather than saving a placeholder, so it is dead-lettered and retried later
+                        log.error("Error processing AI response for activity {}: {}", activity.getId(), e.getMessage());
+                        throw new IllegalStateException("Could not process AI response", e);
+                    }
+                });
+    }
 
-        if (node.isArray()) {
-            node.forEach(improvement -> {
-                String area = improvement.path("area").asText();
-                String recommendation = improvement.path("recommendation").asText();
-                improvements.add(String.format("%s: %s", area, recommendation));
-            });
+    // One prompt for the whole batch. Activities the answer has nothing usable for are asked for on their own.
+    private Mono<List<Recommendation>> askGeminiTogether(List<PendingActivity> batch) {
+        if (batch.size() == 1) {
+            return askGemini(batch.get(0)).map(List::of);
         }
-
-        return improvements.isEmpty() ? Collections.singletonList("No specific improvements provided") : improvements;
-
+        long start = System.nanoTime();
+        return Mono.fromCallable(() -> createPromptForActivities(batch))
+                .flatMap(geminiService::answer)
+                .flatMap(response -> {
+                    recommendationCache.recordGeminiRequest(Duration.ofNanos(System.nanoTime() - start));
+                    Map<String, Analysis> answers = readBatchAnswers(response, batch.size());
+                    return Flux.fromIterable(batch)
+                            .flatMapSequential(pending -> {
+                                Analysis answer = answers.get(pending.activity().getId());
+                                if (answer == null) {
+                                    batchFallbacks.increment();
+                                    return askGemini(pending);
+                                }
+                                return Mono.just(answered(pending, processAiResponse(pending.activity(), answer)));
+                            })
+                            .collectList();
+                });
     }
 
-    private List<String> extractSuggestions(JsonNode node) {
-        List<String> suggestions = new ArrayList<>();
-
-        if (node.isArray()) {
-            node.forEach(suggestion -> {
-                String workout = suggestion.path("workout").asText();
-                String description = suggestion.path("description").asText();
-                suggestions.add(String.format("%s: %s", workout, description));
-            });
+    // The analyses of a batch answer by activity id; empty if the answer cannot be parsed
+    private Map<String, Analysis> readBatchAnswers(DataBuffer response, int batchSize) {
+        try {
+            GeminiAnswer answer = GeminiResponseReader.read(response);
+            Map<String, Analysis> answers = new HashMap<>();
+            answer.analyses().forEach(analysis -> answers.put(analysis.activityId(), analysis));
+            recordTokens(answer, batchSize);
+            return answers;
+        } catch (Exception e) {
+            log.warn("Could not parse batched AI response for {} activities, asking for each alone: {}", batchSize,
+                    e.getMessage());
+            return Map.of();
         }
-
-        return suggestions.isEmpty() ? Collections.singletonList("No specific suggestions provided") : suggestions;
     }
 
-    private List<String> extractSafetyInstructions(JsonNode node) {
-        List<String> safetyMeasures = new ArrayList<>();
+    // Only answers that could be understood are worth handing out again
+    private Recommendation answered(PendingActivity pending, Recommendation recommendation) {
+        recommendationCache.store(pending.fingerprint(), recommendation);
+        return recommendation;
+    }
 
-        if (node.isArray()) {
-            node.forEach(safety -> {
-                safetyMeasures.add(safety.asText());
-            });
+    private void recordTokens(GeminiAnswer answer, int recommendations) {
+        if (answer.totalTokens() >= 0) {
+            tokensPerRecommendation.record((double) answer.totalTokens() / recommendations);
         }
+    }
 
-        return safetyMeasures.isEmpty() ? Collections.singletonList("No specific Safety measures provided")
-                : safetyMeasures;
-
+    private Recommendation processAiResponse(Activity activity, Analysis analysis) {
+        return Recommendation.builder()
+                .activityId(activity.getId())
+                .userId(activity.getUserId())
+                .activityType(activity.getType())
+                .recommendation(analysis.recommendation())
+                .improvements(analysis.improvements())
+                .suggestions(analysis.suggestions())
+                .safetyMeasures(analysis.safetyMeasures())
+                .createdAt(LocalDateTime.now())
+                .build();
     }
 
-    private void addAnalysisSection(StringBuilder stringBuilder, JsonNode node, String key, String prefix) {
-        if (!node.path(key).isMissingNode()) {
-            stringBuilder.append(prefix).append(node.path(key).asText()).append("\n\n");
+    // Summaries rather than the raw samples, an hour of per-second data would not fit a prompt
+    private String describeSensorSeries(Map<String, SensorSeries> sensorSeries) {
+        if (sensorSeries == null || sensorSeries.isEmpty()) {
+            return "none";
         }
+        return sensorSeries.entrySet().stream()
+                .map(entry -> entry.getKey() + ": " + entry.getValue().summary())
+                .collect(Collectors.joining("; "));
     }
 
     private String createPromptForActivity(Activity activity) {
@@ -140,7 +175,7 @@ public class ActivityAiService {
 
                                   "heartRate": "Heart rate analysis here",
 
-                                  "CaloriesBurned": "Calories Burned here"
+                                  "caloriesBurned": "Calories Burned here"
 
                               },
 
@@ -190,6 +225,8 @@ public class ActivityAiService {
 
                           Additional Metrics: %s
 
+                          Sensor Data: %s
+
 
 
                           provide detailed analysis focusing on performance, improvements, next workout suggestions, and safety guidelines
@@ -200,8 +237,70 @@ public class ActivityAiService {
                         activity.getType(),
                         activity.getDuration(),
                         activity.getCaloriesBurned(),
-                        activity.getAdditionalMetrics() != null ? activity.getAdditionalMetrics().toString() : "{}"
+                        activity.getAdditionalMetrics() != null ? activity.getAdditionalMetrics().toString() : "{}",
+                        describeSensorSeries(activity.getSensorSeries())
 
                 );
     }
+
+    private String createPromptForActivities(List<PendingActivity> batch) {
+        String activities = batch.stream()
+                .map(pending -> {
+                    Activity activity = pending.activity();
+                    return String.format("""
+                            Activity Id: %s
+                            Activity Type: %s
+                            Duration: %d minutes
+                            calories Burned: %d
+                            Additional Metrics: %s
+                            Sensor Data: %s
+                            """,
+                            activity.getId(),
+                            activity.getType(),
+                            activity.getDuration(),
+                            activity.getCaloriesBurned(),
+                            activity.getAdditionalMetrics() != null ? activity.getAdditionalMetrics().toString() : "{}",
+                            describeSensorSeries(activity.getSensorSeries()));
+                })
+                .collect(Collectors.joining("\n"));
+        return String.format("""
+                Analyze each of these fitness activities and provide detailed recommendations for every one of them,
+                as a JSON array with one element per activity in the following format
+
+                [
+                    {
+                        "activityId": "Activity Id as given below",
+                        "analysis" : {
+                            "overall": "Overall analysis here",
+                            "pace": "Pace analysis here",
+                            "heartRate": "Heart rate analysis here",
+                            "caloriesBurned": "Calories Burned here"
+                        },
+                        "improvements": [
+                            {
+                                "area": "Area name",
+                                "recommendation": "Detailed Recommendation"
+                            }
+                        ],
+                        "suggestions" : [
+                            {
+                                "workout": "Workout name",
+                                "description": "Detailed workout description"
+                            }
+                        ],
+                        "safety": [
+                            "Safety point 1",
+                            "Safety point 2"
+                        ]
+                    }
+                ]
+
+                Analyze these activities:
+
+                %s
+                provide detailed analysis of each activity on its own, focusing on performance, improvements, next workout suggestions, and safety guidelines
+
+                Ensure the response is a JSON array following the EXACT format shown above, with one element for every Activity Id.
+                """, activities);
+    }
 }
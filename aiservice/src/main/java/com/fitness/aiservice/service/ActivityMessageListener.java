@@ -1,15 +1,26 @@
 package com.fitness.aiservice.service;
 
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 
 import com.fitness.aiservice.model.Activity;
-import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+/**
+ * Turns activity messages into recommendations without holding a thread per
+ * Gemini call. Returning a {@link Mono} makes the container ack the message
+ * only once the recommendation is saved, and reject it if anything on the
+ * way fails, which moves it to the dead letter queue for
+ * {@link DeadLetterRedriver} to retry later. How many messages are in flight
+ * is bounded by the listener prefetch alone; how many requests to Gemini are
+ * out at once is up to {@link GeminiConcurrencyLimiter}.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -18,12 +29,17 @@ public class ActivityMessageListener {
     private final ActivityAiService aiService;
     private final RecommendationRepository recommendationRepository;
 
-    @RabbitListener(queues = "fitness.queue")
-    public void processActivity(Activity activity) {
+    @RabbitListener(queues = "${rabbitmq.queue.name}")
+    public Mono<Void> processActivity(Activity activity) {
         log.info("recieved activity for processing: {}", activity.getId());
-        log.info("Generating recommendation............");
-        // aiService.generateRecommendation(activity));
-        Recommendation recommendation = aiService.generateRecommendation(activity);
-        recommendationRepository.save(recommendation);
+        return Mono.defer(() -> aiService.generateRecommendation(activity))
+                // Saving blocks, keep it off the HTTP client's event loop
+                .publishOn(Schedulers.boundedElastic())
+                .map(recommendationRepository::save)
+                .doOnNext(recommendation -> log.info("Saved recommendation for activity {}", activity.getId()))
+                .doOnError(e -> log.warn("Could not process activity {}: {}", activity.getId(), e.getMessage()))
+                // Requeueing would hand it straight back, while Gemini is most likely still failing
+                .onErrorMap(e -> new AmqpRejectAndDontRequeueException("Could not process activity", e))
+                .then();
     }
 }
@@ -0,0 +1,84 @@
+package com.fitness.aiservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gives dead-lettered activity messages another go later. Each one is put
+ * on the re-drive queue with an expiration that doubles with every attempt
+ * (with jitter, so a burst of failures does not come back as a burst); once
+ * it expires the broker routes it back to the activity queue. Messages that
+ * have been re-driven {@code max-attempts} times are parked instead. The
+ * broker only expires messages at the head of a queue, so a short delay can
+ * end up waiting behind a longer one; that postpones it, nothing more.
+ */
+@Service
+@Slf4j
+public class DeadLetterRedriver {
+
+    static final String REDRIVE_COUNT_HEADER = "x-redrive-count";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String redriveQueue;
+    private final String parkingQueue;
+    private final int maxAttempts;
+    private final Duration delay;
+    private final Duration maxDelay;
+    private final Counter redriven;
+    private final Counter parked;
+
+    public DeadLetterRedriver(RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry,
+            @Value("${rabbitmq.redrive.queue}") String redriveQueue,
+            @Value("${rabbitmq.redrive.parking-queue}") String parkingQueue,
+            @Value("${rabbitmq.redrive.max-attempts:5}") int maxAttempts,
+            @Value("${rabbitmq.redrive.delay:30s}") Duration delay,
+            @Value("${rabbitmq.redrive.max-delay:10m}") Duration maxDelay) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.redriveQueue = redriveQueue;
+        this.parkingQueue = parkingQueue;
+        this.maxAttempts = maxAttempts;
+        this.delay = delay;
+        this.maxDelay = maxDelay;
+        this.redriven = Counter.builder("ai.activity.messages.redriven")
+                .description("Dead-lettered activity messages sent back for another attempt")
+                .register(meterRegistry);
+        this.parked = Counter.builder("ai.activity.messages.parked")
+                .description("Activity messages given up on after every re-drive failed")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(queues = "${rabbitmq.dead-letter.queue}")
+    public void redrive(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        Number previous = properties.getHeader(REDRIVE_COUNT_HEADER);
+        int attempt = previous == null ? 1 : previous.intValue() + 1;
+
+        if (attempt > maxAttempts) {
+            log.error("Parking activity message after {} re-drives", maxAttempts);
+            rabbitTemplate.send("", parkingQueue, message);
+            parked.increment();
+            return;
+        }
+        properties.setHeader(REDRIVE_COUNT_HEADER, attempt);
+        properties.setExpiration(Long.toString(delayFor(attempt).toMillis()));
+        rabbitTemplate.send("", redriveQueue, message);
+        redriven.increment();
+    }
+
+    // Half the exponential delay, plus a random part of the other half
+    Duration delayFor(int attempt) {
+        long exponential = Math.min(maxDelay.toMillis(), delay.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1));
+    }
+}
@@ -0,0 +1,104 @@
+package com.fitness.aiservice.service;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Caps how many requests to Gemini are in flight at once without holding a
+ * thread: a request that finds every permit taken is parked as a subscriber
+ * and resumed when one is released. Only the HTTP call itself holds a
+ * permit; waiting for the rate limiter, retry backoff, the recommendation
+ * cache and batching do not.
+ */
+@Component
+public class GeminiConcurrencyLimiter {
+
+    private final int maxConcurrentRequests;
+    private final Queue<MonoSink<Permit>> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public GeminiConcurrencyLimiter(MeterRegistry meterRegistry,
+            @Value("${ai.gemini.max-concurrent-requests:16}") int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+
+        Gauge.builder("ai.gemini.requests.in.flight", this, GeminiConcurrencyLimiter::getInFlight)
+                .description("Gemini requests currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("ai.gemini.requests.waiting", this, GeminiConcurrencyLimiter::getWaiting)
+                .description("Gemini requests waiting for one in flight to finish")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the call once a permit is free, and frees it again when
+     * the call completes, fails or is cancelled.
+     */
+    public <T> Mono<T> withPermit(Supplier<Mono<T>> call) {
+        return Mono.usingWhen(acquire(), permit -> call.get(), Permit::release,
+                (permit, error) -> permit.release(), Permit::release);
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+            synchronized (this) {
+                if (inFlight == maxConcurrentRequests) {
+                    waiting.add(sink);
+                    sink.onCancel(() -> giveUp(sink));
+                    return;
+                }
+                inFlight++;
+            }
+            sink.success(new Permit());
+        })
+                // A permit handed to a waiter that was cancelled at the same moment is passed on
+                .doOnDiscard(Permit.class, permit -> permit.release().subscribe());
+    }
+
+    private synchronized void giveUp(MonoSink<Permit> sink) {
+        waiting.remove(sink);
+    }
+
+    private void releasePermit() {
+        MonoSink<Permit> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        // Handed over as is, so the number in flight does not change
+        next.success(new Permit());
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    private class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Mono<Void> release() {
+            return Mono.fromRunnable(() -> {
+                if (released.compareAndSet(false, true)) {
+                    releasePermit();
+                }
+            });
+        }
+    }
+}
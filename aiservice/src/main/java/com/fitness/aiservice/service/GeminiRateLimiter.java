@@ -0,0 +1,104 @@
+package com.fitness.aiservice.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spaces requests to Gemini evenly at a rate that adapts to the quota,
+ * AIMD style: every successful request raises the rate a little (by about
+ * {@code increase} requests per second for each second of successes), and a
+ * 429 cuts it by {@code decrease-factor} and holds all requests back for its
+ * {@code Retry-After}. The rate settles just under the provider's quota
+ * instead of every caller retrying into it at once.
+ */
+@Component
+public class GeminiRateLimiter {
+
+    // 429s for requests that were already in flight are the same signal; cut the rate once for all of them
+    private static final long DECREASE_INTERVAL = Duration.ofSeconds(1).toNanos();
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increase;
+    private final double decreaseFactor;
+    private final Counter throttled;
+
+    private double rate;
+    private long nextSlot = System.nanoTime();
+    private long blockedUntil = System.nanoTime();
+    private long lastDecrease = System.nanoTime() - DECREASE_INTERVAL;
+
+    public GeminiRateLimiter(MeterRegistry meterRegistry,
+            @Value("${ai.gemini.rate-limit.initial:5}") double initialRate,
+            @Value("${ai.gemini.rate-limit.min:0.5}") double minRate,
+            @Value("${ai.gemini.rate-limit.max:50}") double maxRate,
+            @Value("${ai.gemini.rate-limit.increase:1}") double increase,
+            @Value("${ai.gemini.rate-limit.decrease-factor:0.5}") double decreaseFactor) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increase = increase;
+        this.decreaseFactor = decreaseFactor;
+        this.rate = Math.clamp(initialRate, minRate, maxRate);
+
+        Gauge.builder("ai.gemini.rate.limit", this, GeminiRateLimiter::getRate)
+                .description("Requests per second currently allowed to Gemini")
+                .register(meterRegistry);
+        this.throttled = Counter.builder("ai.gemini.throttled")
+                .description("Gemini requests answered with 429 Too Many Requests")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Completes when the next request may be sent.
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long wait = reserve();
+            if (wait <= 0) {
+                return Mono.empty();
+            }
+            // A 429 may have arrived while this request was waiting for its slot
+            return Mono.delay(Duration.ofNanos(wait))
+                    .then(Mono.defer(() -> isBlocked() ? acquire() : Mono.empty()));
+        });
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + increase / rate);
+    }
+
+    public synchronized void onThrottled(Duration retryAfter) {
+        throttled.increment();
+        long now = System.nanoTime();
+        if (retryAfter != null) {
+            blockedUntil = Math.max(blockedUntil, now + retryAfter.toNanos());
+        }
+        if (now - lastDecrease >= DECREASE_INTERVAL) {
+            rate = Math.max(minRate, rate * decreaseFactor);
+            lastDecrease = now;
+        }
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    // Nanoseconds until the reserved slot
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        long slot = Math.max(now, Math.max(nextSlot, blockedUntil));
+        nextSlot = slot + (long) (1_000_000_000 / rate);
+        return slot - now;
+    }
+
+    private synchronized boolean isBlocked() {
+        return blockedUntil - System.nanoTime() > 0;
+    }
+}
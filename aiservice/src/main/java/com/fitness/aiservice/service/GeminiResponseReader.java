@@ -0,0 +1,313 @@
+package com.fitness.aiservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads Gemini's answers token by token, straight from the response bytes
+ * into the fields of a recommendation. The analysis the model writes is a
+ * JSON document inside a string of the response; it is parsed in place from
+ * the parser's character buffer, markdown fence and all, without building a
+ * tree or copying it out first.
+ */
+public final class GeminiResponseReader {
+
+    // Thread-safe once configured; field names are few and short-lived, interning them gains nothing
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build();
+
+    private static final String FENCE = "```";
+
+    /**
+     * The analyses in an answer, one for a single activity or one per
+     * element of a batch answer, and the tokens the request cost, or -1 if
+     * the answer does not say.
+     */
+    public record GeminiAnswer(List<Analysis> analyses, int totalTokens) {
+    }
+
+    /**
+     * One activity's analysis; the activity id is only set in batch answers.
+     */
+    public record Analysis(String activityId, String recommendation, List<String> improvements,
+            List<String> suggestions, List<String> safetyMeasures) {
+    }
+
+    private GeminiResponseReader() {
+    }
+
+    /**
+     * Reads and releases the buffer.
+     */
+    public static GeminiAnswer read(DataBuffer response) throws IOException {
+        try (InputStream in = response.asInputStream(true)) {
+            return read(in);
+        }
+    }
+
+    public static GeminiAnswer read(InputStream response) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a Gemini response object");
+            }
+            List<Analysis> analyses = null;
+            int totalTokens = -1;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("candidates") && value == JsonToken.START_ARRAY) {
+                    analyses = readCandidates(parser);
+                } else if (field.equals("usageMetadata") && value == JsonToken.START_OBJECT) {
+                    totalTokens = readTotalTokens(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (analyses == null) {
+                throw new JsonParseException(parser, "Gemini response has no answer text");
+            }
+            return new GeminiAnswer(analyses, totalTokens);
+        }
+    }
+
+    // candidates[0].content.parts[0].text
+    private static List<Analysis> readCandidates(JsonParser parser) throws IOException {
+        List<Analysis> analyses = null;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (analyses != null || parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && field.equals("content")) {
+                    analyses = readContent(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return analyses;
+    }
+
+    private static List<Analysis> readContent(JsonParser parser) throws IOException {
+        List<Analysis> analyses = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && field.equals("parts")) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (analyses == null && parser.currentToken() == JsonToken.START_OBJECT) {
+                        analyses = readPart(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return analyses;
+    }
+
+    private static List<Analysis> readPart(JsonParser parser) throws IOException {
+        List<Analysis> analyses = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.VALUE_STRING && field.equals("text")) {
+                // Only valid until the parser moves on, so the analyses are read right here
+                analyses = readText(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return analyses;
+    }
+
+    private static int readTotalTokens(JsonParser parser) throws IOException {
+        int totalTokens = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT && field.equals("totalTokenCount")) {
+                totalTokens = parser.getIntValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return totalTokens;
+    }
+
+    // The model's JSON, usually wrapped in a ```json ... ``` fence
+    private static List<Analysis> readText(char[] text, int offset, int length) throws IOException {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && Character.isWhitespace(text[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text[end - 1])) {
+            end--;
+        }
+        if (startsWith(text, start, end, FENCE)) {
+            // Skip the language tag, if any, up to the end of the line
+            start += FENCE.length();
+            while (start < end && text[start] != '\n') {
+                start++;
+            }
+            if (end - start >= FENCE.length() && startsWith(text, end - FENCE.length(), end, FENCE)) {
+                end -= FENCE.length();
+            }
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(text, start, end - start)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                return List.of(readAnalysis(parser));
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected the analysis as a JSON object or array");
+            }
+            List<Analysis> analyses = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == JsonToken.START_OBJECT) {
+                    analyses.add(readAnalysis(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return analyses;
+        }
+    }
+
+    private static Analysis readAnalysis(JsonParser parser) throws IOException {
+        String activityId = null;
+        String[] sections = new String[4];
+        List<String> improvements = new ArrayList<>();
+        List<String> suggestions = new ArrayList<>();
+        List<String> safetyMeasures = new ArrayList<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "activityId" -> activityId = valueText(parser);
+                case "analysis" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        int section = switch (parser.currentName()) {
+                            case "overall" -> 0;
+                            case "pace" -> 1;
+                            case "heartRate" -> 2;
+                            case "caloriesBurned" -> 3;
+                            default -> -1;
+                        };
+                        parser.nextToken();
+                        if (section >= 0) {
+                            sections[section] = valueText(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                case "improvements" -> readPairs(parser, "area", "recommendation", improvements);
+                case "suggestions" -> readPairs(parser, "workout", "description", suggestions);
+                case "safety" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        safetyMeasures.add(valueText(parser));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new Analysis(activityId, recommendation(sections),
+                orDefault(improvements, "No specific improvements provided"),
+                orDefault(suggestions, "No specific suggestions provided"),
+                orDefault(safetyMeasures, "No specific Safety measures provided"));
+    }
+
+    private static String recommendation(String[] sections) {
+        StringBuilder recommendation = new StringBuilder();
+        appendSection(recommendation, "Overall: ", sections[0]);
+        appendSection(recommendation, "Pace: ", sections[1]);
+        appendSection(recommendation, "Heart Rate: ", sections[2]);
+        appendSection(recommendation, "Calories: ", sections[3]);
+        return recommendation.toString().trim();
+    }
+
+    private static void appendSection(StringBuilder recommendation, String prefix, String section) {
+        if (section != null) {
+            recommendation.append(prefix).append(section).append("\n\n");
+        }
+    }
+
+    // Each element as "first: second", e.g. "Cadence: Aim for 170 steps per minute"
+    private static void readPairs(JsonParser parser, String first, String second, List<String> into)
+            throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String firstText = "";
+            String secondText = "";
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if (field.equals(first)) {
+                        firstText = valueText(parser);
+                    } else if (field.equals(second)) {
+                        secondText = valueText(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            into.add(firstText + ": " + secondText);
+        }
+    }
+
+    // The text of a scalar, empty for an object or array
+    private static String valueText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    private static List<String> orDefault(List<String> values, String none) {
+        return values.isEmpty() ? Collections.singletonList(none) : values;
+    }
+
+    private static boolean startsWith(char[] text, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,27 +1,79 @@
 package com.fitness.aiservice.service;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 @Service
+@Slf4j
 public class GeminiService {
 
     private final WebClient webClient;
+    private final GeminiRateLimiter rateLimiter;
+    private final GeminiConcurrencyLimiter concurrencyLimiter;
+    private final String url;
+    private final String key;
+    private final Duration timeout;
+    private final Retry retry;
 
-    public GeminiService(WebClient.Builder webClientBuilder) {
+    public GeminiService(WebClient.Builder webClientBuilder, GeminiRateLimiter rateLimiter,
+            GeminiConcurrencyLimiter concurrencyLimiter, MeterRegistry meterRegistry,
+            @Value("${gemini.api.url}") String url,
+            @Value("${gemini.api.key}") String key,
+            @Value("${ai.gemini.timeout:30s}") Duration timeout,
+            @Value("${ai.gemini.retry.max-retries:2}") int maxRetries,
+            @Value("${ai.gemini.retry.min-backoff:1s}") Duration minBackoff,
+            @Value("${ai.gemini.retry.max-backoff:20s}") Duration maxBackoff) {
         this.webClient = webClientBuilder.build();
-    }
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.url = url;
+        this.key = key;
+        this.timeout = timeout;
 
-    @Value("${gemini.api.url}")
-    String url;
-    @Value("${gemini.api.key}")
-    String key;
+        Counter throttledRetries = retries(meterRegistry, "throttled");
+        Counter serverErrorRetries = retries(meterRegistry, "server_error");
+        Counter timeoutRetries = retries(meterRegistry, "timeout");
+        Counter connectionRetries = retries(meterRegistry, "connection");
+        // Jittered, so callers that failed together do not all come back at the same moment
+        this.retry = Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .filter(GeminiService::isRetryable)
+                .doBeforeRetry(signal -> {
+                    Throwable failure = signal.failure();
+                    (failure instanceof WebClientResponseException.TooManyRequests ? throttledRetries
+                            : failure instanceof WebClientResponseException ? serverErrorRetries
+                            : failure instanceof TimeoutException ? timeoutRetries
+                            : connectionRetries).increment();
+                    log.debug("Retrying Gemini request after {}", failure.toString());
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
 
-    public String getAnswer(String question) {
+    // Non-blocking, so a handful of threads can keep many requests to Gemini in flight.
+    // Every attempt waits for the rate limiter, so retries after a 429 also honour its Retry-After,
+    // and then for a concurrency permit, which it holds only while the request is out.
+    // The answer is left as bytes for GeminiResponseReader, which releases the buffer.
+    public Mono<DataBuffer> answer(String question) {
         Map<String, Object> requestBody = Map.of(
                 "contents", List.of(
                         Map.of(
@@ -29,15 +81,51 @@ public class GeminiService {
                                         Map.of(
                                                 "text", question)))));
 
-        String response = webClient.post()
-                .uri(url + key)
-                .header("Content-Type", "application/json")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
+        return rateLimiter.acquire()
+                .then(concurrencyLimiter.withPermit(() -> webClient.post()
+                        .uri(url + key)
+                        .header("Content-Type", "application/json")
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .bodyToMono(DataBuffer.class)
+                        .timeout(timeout)))
+                .doOnSuccess(answer -> rateLimiter.onSuccess())
+                .doOnError(WebClientResponseException.TooManyRequests.class,
+                        e -> rateLimiter.onThrottled(retryAfter(e.getHeaders())))
+                .retryWhen(retry);
+    }
 
-        return response;
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof WebClientResponseException response) {
+            return response instanceof WebClientResponseException.TooManyRequests
+                    || response.getStatusCode().is5xxServerError();
+        }
+        return failure instanceof TimeoutException || failure instanceof WebClientRequestException;
+    }
+
+    // Retry-After is either a number of seconds or an HTTP date
+    static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                Duration untilDate = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return untilDate.isNegative() ? Duration.ZERO : untilDate;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
 
+    private static Counter retries(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("ai.gemini.retries")
+                .description("Gemini requests retried, by what went wrong")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 }
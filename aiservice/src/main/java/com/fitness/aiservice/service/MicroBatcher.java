@@ -0,0 +1,71 @@
+package com.fitness.aiservice.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Groups items submitted one at a time into batches of up to {@code maxSize},
+ * sending a batch early once its first item has waited {@code linger}. The
+ * handler answers a batch with one result per item, in the same order; if it
+ * fails, every item of the batch fails with it.
+ */
+class MicroBatcher<T, R> {
+
+    private record Pending<T, R>(T item, Sinks.One<R> result, long submittedAt) {
+    }
+
+    private final Sinks.Many<Pending<T, R>> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Function<List<T>, Mono<List<R>>> handler;
+    private final DistributionSummary batchSize;
+    private final Timer linger;
+
+    MicroBatcher(String name, int maxSize, Duration linger, MeterRegistry meterRegistry,
+            Function<List<T>, Mono<List<R>>> handler) {
+        this.handler = handler;
+        this.batchSize = DistributionSummary.builder(name + ".batch.size")
+                .description("Items sent together in one batch")
+                .register(meterRegistry);
+        this.linger = Timer.builder(name + ".batch.linger")
+                .description("Time the first item of a batch waited for the batch to be sent")
+                .register(meterRegistry);
+
+        queue.asFlux()
+                .bufferTimeout(maxSize, linger)
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    Mono<R> submit(T item) {
+        Sinks.One<R> result = Sinks.one();
+        // The queue takes one producer at a time, but items come from many consumer threads
+        synchronized (queue) {
+            queue.tryEmitNext(new Pending<>(item, result, System.nanoTime())).orThrow();
+        }
+        return result.asMono();
+    }
+
+    private Mono<Void> dispatch(List<Pending<T, R>> batch) {
+        batchSize.record(batch.size());
+        linger.record(System.nanoTime() - batch.get(0).submittedAt(), TimeUnit.NANOSECONDS);
+        return Mono.defer(() -> handler.apply(batch.stream().map(Pending::item).toList()))
+                .doOnNext(results -> {
+                    for (int i = 0; i < Math.min(results.size(), batch.size()); i++) {
+                        batch.get(i).result().tryEmitValue(results.get(i));
+                    }
+                })
+                .doOnError(e -> batch.forEach(pending -> pending.result().tryEmitError(e)))
+                // Anything the handler left unanswered; a no-op for the items that already have a result
+                .doFinally(signal -> batch.forEach(pending -> pending.result()
+                        .tryEmitError(new IllegalStateException("Batch handler returned no result for the item"))))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+}
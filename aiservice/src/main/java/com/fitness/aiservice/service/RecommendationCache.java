@@ -0,0 +1,235 @@
+package com.fitness.aiservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.CachedRecommendation;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.model.SensorSeries;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Recommendations for activities that look alike, so near-identical
+ * activities share one Gemini call. Activities are compared by a
+ * fingerprint of their type, duration, calories and metrics, every value
+ * rounded into buckets. Only metrics listed in {@code metric-buckets} can be
+ * bucketed; an activity with any other metric or sensor series is never
+ * cached, since its values reach the prompt and would show up in another
+ * user's recommendation. Lookups go to an in-process cache first and to the
+ * {@code recommendation_cache} collection next, which survives restarts and
+ * is shared by all instances.
+ */
+@Service
+@Slf4j
+public class RecommendationCache {
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int durationBucket;
+    private final int caloriesBucket;
+    // Bucket size per lower-cased metric name
+    private final Map<String, Double> metricBuckets;
+    private final Cache<String, CachedRecommendation> local;
+
+    private final Counter localHits;
+    private final Counter mongoHits;
+    private final Counter misses;
+    private final Counter uncacheable;
+    private final Timer geminiLatency;
+    private final Counter savedLatency;
+
+    public RecommendationCache(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+            @Value("${ai.recommendation-cache.enabled:true}") boolean enabled,
+            @Value("${ai.recommendation-cache.local-max-size:10000}") long localMaxSize,
+            @Value("${ai.recommendation-cache.ttl:7d}") Duration ttl,
+            @Value("${ai.recommendation-cache.duration-bucket:5}") int durationBucket,
+            @Value("${ai.recommendation-cache.calories-bucket:50}") int caloriesBucket,
+            @Value("${ai.recommendation-cache.metric-buckets:distance=1,pace=0.5,avgHeartRate=5,maxHeartRate=5}")
+            List<String> metricBuckets) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.durationBucket = Math.max(1, durationBucket);
+        this.caloriesBucket = Math.max(1, caloriesBucket);
+        this.metricBuckets = parseBuckets(metricBuckets);
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        this.localHits = lookups(meterRegistry, "local");
+        this.mongoHits = lookups(meterRegistry, "mongo");
+        this.misses = lookups(meterRegistry, "miss");
+        this.uncacheable = lookups(meterRegistry, "uncacheable");
+        Gauge.builder("ai.recommendation.cache.hit.ratio", this, RecommendationCache::hitRatio)
+                .description("Share of recommendations served from the cache instead of Gemini")
+                .register(meterRegistry);
+        this.geminiLatency = Timer.builder("ai.gemini.request")
+                .description("Time to get an answer from Gemini")
+                .register(meterRegistry);
+        this.savedLatency = Counter.builder("ai.recommendation.cache.saved.latency")
+                .description("Gemini time saved by cache hits, estimated from the average request time")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The fingerprint of the activity, or {@code null} if it has a metric
+     * whose value cannot be bucketed and so must not share a recommendation.
+     */
+    public String fingerprint(Activity activity) {
+        StringBuilder key = new StringBuilder()
+                .append(activity.getType() == null ? "" : activity.getType().toUpperCase(Locale.ROOT))
+                .append("|d").append(bucket(activity.getDuration(), durationBucket))
+                .append("|c").append(bucket(activity.getCaloriesBurned(), caloriesBucket))
+                .append('|');
+        TreeMap<String, String> metrics = new TreeMap<>();
+        if (activity.getAdditionalMetrics() != null) {
+            for (Map.Entry<String, Object> metric : activity.getAdditionalMetrics().entrySet()) {
+                String name = metric.getKey().toLowerCase(Locale.ROOT);
+                Double size = metricBuckets.get(name);
+                if (size == null || !(metric.getValue() instanceof Number value)) {
+                    return null;
+                }
+                metrics.put(name, bucket(value.doubleValue(), size));
+            }
+        }
+        if (activity.getSensorSeries() != null) {
+            for (Map.Entry<String, SensorSeries> series : activity.getSensorSeries().entrySet()) {
+                String name = series.getKey().toLowerCase(Locale.ROOT);
+                Double size = metricBuckets.get(name);
+                if (size == null) {
+                    return null;
+                }
+                metrics.put("series:" + name, describe(series.getValue(), size));
+            }
+        }
+        metrics.forEach((name, value) -> key.append(name).append('=').append(value).append(','));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The cached recommendation for the fingerprint, or empty on a miss.
+     * A Mongo failure counts as a miss.
+     */
+    public Mono<CachedRecommendation> lookup(String fingerprint) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        if (fingerprint == null) {
+            uncacheable.increment();
+            return Mono.empty();
+        }
+        CachedRecommendation cached = local.getIfPresent(fingerprint);
+        if (cached != null) {
+            hit(localHits);
+            return Mono.just(cached);
+        }
+        return Mono.fromCallable(() -> mongoTemplate.findById(fingerprint, CachedRecommendation.class))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(found -> {
+                    local.put(fingerprint, found);
+                    hit(mongoHits);
+                })
+                .onErrorResume(e -> {
+                    log.warn("Recommendation cache lookup failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    public void store(String fingerprint, Recommendation recommendation) {
+        if (!enabled || fingerprint == null) {
+            return;
+        }
+        CachedRecommendation cached = CachedRecommendation.of(fingerprint, recommendation);
+        local.put(fingerprint, cached);
+        Mono.fromRunnable(() -> mongoTemplate.save(cached))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.warn("Could not store cached recommendation: {}", e.getMessage()));
+    }
+
+    public void recordGeminiRequest(Duration latency) {
+        geminiLatency.record(latency);
+    }
+
+    private void hit(Counter tier) {
+        tier.increment();
+        savedLatency.increment(geminiLatency.mean(TimeUnit.SECONDS));
+    }
+
+    private double hitRatio() {
+        double hits = localHits.count() + mongoHits.count();
+        double lookups = hits + misses.count();
+        return lookups == 0 ? 0 : hits / lookups;
+    }
+
+    private static long bucket(Integer value, int size) {
+        return value == null ? -1 : Math.round(value / (double) size) * size;
+    }
+
+    private static String bucket(double value, double size) {
+        return Double.toString(Math.round(value / size) * size);
+    }
+
+    // The same figures the prompt's summary of the series quotes
+    private static String describe(SensorSeries series, double size) {
+        double[] values = series.getValues();
+        if (values.length == 0) {
+            return "empty";
+        }
+        DoubleSummaryStatistics stats = Arrays.stream(values).summaryStatistics();
+        return bucket(stats.getMin(), size) + "/" + bucket(stats.getAverage(), size) + "/"
+                + bucket(stats.getMax(), size);
+    }
+
+    // "name=size" entries, e.g. avgHeartRate=5
+    private static Map<String, Double> parseBuckets(List<String> entries) {
+        Map<String, Double> buckets = new HashMap<>();
+        for (String entry : entries) {
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Metric bucket must be name=size: " + entry);
+            }
+            buckets.put(entry.substring(0, separator).trim().toLowerCase(Locale.ROOT),
+                    Double.parseDouble(entry.substring(separator + 1).trim()));
+        }
+        return Map.copyOf(buckets);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.recommendation.cache.lookups")
+                .description("Recommendation cache lookups by where they were answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,70 @@
+package com.fitness.aiservice.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+/**
+ * Decodes series exactly as activity-service's {@code SensorSeries} writes
+ * them, so the two hand-written codecs cannot drift apart unnoticed. The
+ * payloads were produced by that encoder; if its format changes, regenerate
+ * them there rather than editing them here.
+ */
+class SensorSeriesTests {
+
+    // SensorSeries.of(
+    //     {1700000000000, 1700000001000, 1700000002000, 1700000003500, 1700000003400},
+    //     {142.5, 138.25, 131, 147.75, 147.75})
+    private static final String HEART_RATE = "{\"count\":5,\"data\":\"AQUCgKCr/vlir5Cr/vliAOgH/xjU3gHRBqkLlhoA\"}";
+
+    // SensorSeries.of({1700000000000, 1700000060000, 1700000120000}, {12, -3, -41})
+    private static final String ELEVATION = "{\"count\":3,\"data\":\"AQMAgKCr/vliv/aj/vliABgdSw==\"}";
+
+    // SensorSeries.of({}, {})
+    private static final String EMPTY = "{\"count\":0,\"data\":\"AQAA\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void decodesScaledValuesAndIrregularTimestamps() throws Exception {
+        SensorSeries series = objectMapper.readValue(HEART_RATE, SensorSeries.class);
+
+        assertThat(series.size()).isEqualTo(5);
+        // Uneven gaps and a timestamp going backwards give negative timestamp deltas
+        assertThat(series.getTimestamps()).containsExactly(1700000000000L, 1700000001000L, 1700000002000L,
+                1700000003500L, 1700000003400L);
+        assertThat(series.getValues()).containsExactly(142.5, 138.25, 131, 147.75, 147.75);
+    }
+
+    @Test
+    void decodesNegativeValues() throws Exception {
+        SensorSeries series = objectMapper.readValue(ELEVATION, SensorSeries.class);
+
+        assertThat(series.getTimestamps()).containsExactly(1700000000000L, 1700000060000L, 1700000120000L);
+        assertThat(series.getValues()).containsExactly(12, -3, -41);
+        assertThat(series.summary()).isEqualTo("3 samples over 2 min, min -41, avg -10.7, max 12");
+    }
+
+    @Test
+    void decodesTheEmptySeries() throws Exception {
+        SensorSeries series = objectMapper.readValue(EMPTY, SensorSeries.class);
+
+        assertThat(series.size()).isZero();
+        assertThat(series.getTimestamps()).isEmpty();
+        assertThat(series.getValues()).isEmpty();
+        assertThat(series.summary()).isEqualTo("no samples");
+    }
+
+    @Test
+    void rejectsATruncatedPayload() {
+        // The heart rate payload with its last sample cut off
+        String truncated = "{\"count\":5,\"data\":\"AQUCgKCr/vlir5Cr/vliAOgH/xjU3gHRBqkLlho=\"}";
+
+        assertThatThrownBy(() -> objectMapper.readValue(truncated, SensorSeries.class).getValues())
+                .isInstanceOfAny(MismatchedInputException.class, IllegalArgumentException.class);
+    }
+}
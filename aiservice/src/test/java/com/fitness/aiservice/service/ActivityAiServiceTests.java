@@ -0,0 +1,122 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalMatchers.and;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.Recommendation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ActivityAiServiceTests {
+
+    private static final Mono<DataBuffer> BATCH_ANSWER = answer("""
+            [{"activityId": "a1", "analysis": {"overall": "First"}}, \
+            {"activityId": "a2", "analysis": {"overall": "Second"}}]""", 600);
+
+    private static final Mono<DataBuffer> SINGLE_ANSWER = answer("""
+            {"analysis": {"overall": "Alone"}}""", 400);
+
+    private final GeminiService geminiService = mock(GeminiService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ActivityAiService aiService = new ActivityAiService(geminiService,
+            new RecommendationCache(null, meterRegistry, false, 1, Duration.ofDays(1), 5, 50, List.of()),
+            meterRegistry, 2, Duration.ofSeconds(5));
+
+    @Test
+    void activitiesArrivingTogetherShareOneGeminiRequest() {
+        when(geminiService.answer(anyString())).thenReturn(BATCH_ANSWER);
+
+        List<Recommendation> recommendations = generate(activity("a1"), activity("a2"));
+
+        assertThat(recommendations).extracting(Recommendation::getRecommendation)
+                .containsExactly("Overall: First", "Overall: Second");
+        assertThat(recommendations).extracting(Recommendation::getActivityId).containsExactly("a1", "a2");
+        verify(geminiService, times(1)).answer(anyString());
+        assertThat(meterRegistry.get("ai.gemini.batch.size").summary().mean()).isEqualTo(2);
+        assertThat(meterRegistry.get("ai.gemini.tokens.per.recommendation").summary().mean()).isEqualTo(300);
+    }
+
+    @Test
+    void unparseableBatchAnswerFallsBackToSingleRequests() {
+        when(geminiService.answer(contains("Activity Id:"))).thenReturn(answer("Sorry, no.", 50));
+        when(geminiService.answer(contains("Analyze this activity:"))).thenReturn(SINGLE_ANSWER);
+
+        List<Recommendation> recommendations = generate(activity("a1"), activity("a2"));
+
+        assertThat(recommendations).extracting(Recommendation::getRecommendation)
+                .containsExactly("Overall: Alone", "Overall: Alone");
+        verify(geminiService, times(3)).answer(anyString());
+        assertThat(meterRegistry.get("ai.gemini.batch.fallbacks").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void unparseableAnswerFailsRatherThanSavingAPlaceholder() {
+        ActivityAiService unbatched = new ActivityAiService(geminiService,
+                new RecommendationCache(null, meterRegistry, false, 1, Duration.ofDays(1), 5, 50, List.of()),
+                meterRegistry, 1, Duration.ZERO);
+        when(geminiService.answer(anyString())).thenReturn(answer("Sorry, no.", 50));
+
+        assertThatThrownBy(() -> unbatched.generateRecommendation(activity("a1")).block(Duration.ofSeconds(5)))
+                .hasMessageContaining("Could not process AI response");
+    }
+
+    @Test
+    void bothPromptsAskForTheCaloriesSectionUnderTheKeyTheReaderReads() {
+        when(geminiService.answer(contains("Activity Id:"))).thenReturn(answer("Sorry, no.", 50));
+        when(geminiService.answer(contains("Analyze this activity:"))).thenReturn(answer("""
+                {"analysis": {"caloriesBurned": "About right"}}""", 400));
+
+        List<Recommendation> recommendations = generate(activity("a1"), activity("a2"));
+
+        assertThat(recommendations).extracting(Recommendation::getRecommendation)
+                .containsOnly("Calories: About right");
+        verify(geminiService).answer(and(contains("Activity Id:"), contains("\"caloriesBurned\":")));
+        verify(geminiService, times(2)).answer(and(contains("Analyze this activity:"),
+                contains("\"caloriesBurned\":")));
+    }
+
+    private List<Recommendation> generate(Activity... activities) {
+        return Flux.fromArray(activities)
+                .flatMapSequential(aiService::generateRecommendation)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+    }
+
+    // A fresh buffer for every request, as reading one consumes it
+    private static Mono<DataBuffer> answer(String text, int totalTokens) {
+        String escaped = text.replace("\\", "\\\\").replace("\"", "\\\"");
+        byte[] response = """
+                {"candidates": [{"content": {"parts": [{"text": "```json\\n%s\\n```"}]}}], \
+                "usageMetadata": {"totalTokenCount": %d}}""".formatted(escaped, totalTokens)
+                .getBytes(StandardCharsets.UTF_8);
+        return Mono.fromSupplier(() -> DefaultDataBufferFactory.sharedInstance.wrap(response));
+    }
+
+    private static Activity activity(String id) {
+        Activity activity = new Activity();
+        activity.setId(id);
+        activity.setUserId("user-1");
+        activity.setType("RUNNING");
+        activity.setDuration(45);
+        activity.setCaloriesBurned(500);
+        return activity;
+    }
+}
@@ -0,0 +1,61 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ActivityMessageListenerTests {
+
+    private final ActivityAiService aiService = mock(ActivityAiService.class);
+    private final RecommendationRepository recommendationRepository = mock(RecommendationRepository.class);
+    private final ActivityMessageListener listener = new ActivityMessageListener(aiService, recommendationRepository);
+
+    @Test
+    void messageIsAckedOnceItsRecommendationIsSaved() {
+        Sinks.One<Recommendation> answer = Sinks.one();
+        Activity activity = activity("a1");
+        when(aiService.generateRecommendation(activity)).thenReturn(answer.asMono());
+        when(recommendationRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Taking the message never waits, whatever Gemini is doing
+        CompletableFuture<Void> ack = listener.processActivity(activity).toFuture();
+        assertThat(ack).isNotDone();
+
+        answer.tryEmitValue(new Recommendation());
+        assertThat(ack).succeedsWithin(Duration.ofSeconds(5));
+        verify(recommendationRepository).save(any());
+    }
+
+    @Test
+    void failedGeminiCallIsDeadLettered() {
+        Activity activity = activity("a1");
+        when(aiService.generateRecommendation(activity)).thenReturn(Mono.error(new IllegalStateException("503")));
+
+        assertThatThrownBy(() -> listener.processActivity(activity).block(Duration.ofSeconds(5)))
+                .isInstanceOf(AmqpRejectAndDontRequeueException.class);
+        verify(recommendationRepository, never()).save(any());
+    }
+
+    private static Activity activity(String id) {
+        Activity activity = new Activity();
+        activity.setId(id);
+        return activity;
+    }
+}
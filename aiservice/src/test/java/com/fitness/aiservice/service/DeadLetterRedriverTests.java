@@ -0,0 +1,57 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DeadLetterRedriverTests {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final DeadLetterRedriver redriver = new DeadLetterRedriver(rabbitTemplate, new SimpleMeterRegistry(),
+            "redrive", "parked", 3, Duration.ofSeconds(30), Duration.ofMinutes(2));
+
+    @Test
+    void deadLetterIsRedrivenWithAJitteredGrowingDelay() {
+        Message message = message(1);
+
+        redriver.redrive(message);
+
+        verify(rabbitTemplate).send(eq(""), eq("redrive"), eq(message));
+        assertThat((Integer) message.getMessageProperties().getHeader(DeadLetterRedriver.REDRIVE_COUNT_HEADER))
+                .isEqualTo(2);
+        // 60s for the second attempt, jittered into its upper half
+        assertThat(Long.parseLong(message.getMessageProperties().getExpiration())).isBetween(30_000L, 60_000L);
+    }
+
+    @Test
+    void delayIsCappedAtTheMaximum() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(redriver.delayFor(10)).isBetween(Duration.ofMinutes(1), Duration.ofMinutes(2));
+        }
+    }
+
+    @Test
+    void messageIsParkedOnceEveryRedriveFailed() {
+        Message message = message(3);
+
+        redriver.redrive(message);
+
+        verify(rabbitTemplate).send(eq(""), eq("parked"), eq(message));
+    }
+
+    private static Message message(Integer redrives) {
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(DeadLetterRedriver.REDRIVE_COUNT_HEADER, redrives);
+        return new Message("{}".getBytes(), properties);
+    }
+}
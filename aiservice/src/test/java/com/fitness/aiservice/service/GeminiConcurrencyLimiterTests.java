@@ -0,0 +1,69 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class GeminiConcurrencyLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GeminiConcurrencyLimiter limiter = new GeminiConcurrencyLimiter(meterRegistry, 1);
+
+    @Test
+    void callWaitsWithoutBlockingUntilTheOneInFlightFinishes() {
+        Sinks.One<String> first = Sinks.one();
+        AtomicInteger secondStarted = new AtomicInteger();
+
+        CompletableFuture<String> firstAnswer = limiter.withPermit(first::asMono).toFuture();
+        // Subscribing returns straight away, the call is only started once a permit is free
+        CompletableFuture<String> secondAnswer = limiter.withPermit(() -> {
+            secondStarted.incrementAndGet();
+            return Mono.just("second");
+        }).toFuture();
+
+        assertThat(secondStarted).hasValue(0);
+        assertThat(gauge("ai.gemini.requests.in.flight")).isEqualTo(1);
+        assertThat(gauge("ai.gemini.requests.waiting")).isEqualTo(1);
+
+        first.tryEmitValue("first");
+
+        assertThat(firstAnswer).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("first");
+        assertThat(secondAnswer).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("second");
+        assertThat(secondStarted).hasValue(1);
+        assertThat(gauge("ai.gemini.requests.in.flight")).isZero();
+    }
+
+    @Test
+    void failedCallFreesItsPermit() {
+        assertThat(limiter.withPermit(() -> Mono.error(new IllegalStateException("503"))).onErrorComplete()
+                .block(Duration.ofSeconds(5))).isNull();
+
+        assertThat(limiter.withPermit(() -> Mono.just("next")).block(Duration.ofSeconds(5))).isEqualTo("next");
+    }
+
+    @Test
+    void cancelledCallsFreeTheirPermitAndTheirPlaceInLine() {
+        Disposable inFlight = limiter.withPermit(Mono::never).subscribe();
+        Disposable waiting = limiter.withPermit(() -> Mono.just("never asked")).subscribe();
+
+        waiting.dispose();
+        assertThat(gauge("ai.gemini.requests.waiting")).isZero();
+        inFlight.dispose();
+
+        assertThat(gauge("ai.gemini.requests.in.flight")).isZero();
+        assertThat(limiter.withPermit(() -> Mono.just("next")).block(Duration.ofSeconds(5))).isEqualTo("next");
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
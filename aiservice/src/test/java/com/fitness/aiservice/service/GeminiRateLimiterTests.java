@@ -0,0 +1,54 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GeminiRateLimiterTests {
+
+    private final GeminiRateLimiter limiter = new GeminiRateLimiter(new SimpleMeterRegistry(), 10, 1, 20, 1, 0.5);
+
+    @Test
+    void successesRaiseTheRateAdditivelyUpToTheMaximum() {
+        limiter.onSuccess();
+        assertThat(limiter.getRate()).isEqualTo(10.1);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.getRate()).isEqualTo(20);
+    }
+
+    @Test
+    void throttlingHalvesTheRateOnceForABurstOf429s() {
+        limiter.onThrottled(null);
+        limiter.onThrottled(null);
+        limiter.onThrottled(null);
+
+        assertThat(limiter.getRate()).isEqualTo(5);
+    }
+
+    @Test
+    void requestsAreSpacedByTheRate() {
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            limiter.acquire().block();
+        }
+        // The first goes straight away, the other five 100ms apart
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(450));
+    }
+
+    @Test
+    void retryAfterHoldsBackEveryRequest() {
+        limiter.onThrottled(Duration.ofMillis(300));
+
+        long start = System.nanoTime();
+        limiter.acquire().block();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+    }
+}
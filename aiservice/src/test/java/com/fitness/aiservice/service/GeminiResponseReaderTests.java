@@ -0,0 +1,89 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.service.GeminiResponseReader.Analysis;
+import com.fitness.aiservice.service.GeminiResponseReader.GeminiAnswer;
+
+class GeminiResponseReaderTests {
+
+    @Test
+    void readsTheFencedAnalysisInAFixedSectionOrder() throws IOException {
+        GeminiAnswer answer = read("""
+                ```json
+                {"improvements": [{"recommendation": "Aim for 170 steps per minute.", "area": "Cadence"}],
+                 "analysis": {"pace": "Even.", "ignored": {"nested": [1, 2]}, "overall": "A steady run."},
+                 "suggestions": [{"workout": "Tempo", "description": "20 minutes at threshold."}],
+                 "safety": ["Warm up first.", 42]}
+                ```
+                """, 648);
+
+        assertThat(answer.totalTokens()).isEqualTo(648);
+        Analysis analysis = answer.analyses().getFirst();
+        assertThat(analysis.recommendation()).isEqualTo("Overall: A steady run.\n\nPace: Even.");
+        assertThat(analysis.improvements()).containsExactly("Cadence: Aim for 170 steps per minute.");
+        assertThat(analysis.suggestions()).containsExactly("Tempo: 20 minutes at threshold.");
+        assertThat(analysis.safetyMeasures()).containsExactly("Warm up first.", "42");
+    }
+
+    @Test
+    void missingListsGetTheirPlaceholder() throws IOException {
+        Analysis analysis = read("{\"analysis\": {\"overall\": \"Fine.\"}, \"improvements\": []}", 10)
+                .analyses().getFirst();
+
+        assertThat(analysis.improvements()).containsExactly("No specific improvements provided");
+        assertThat(analysis.suggestions()).containsExactly("No specific suggestions provided");
+        assertThat(analysis.safetyMeasures()).containsExactly("No specific Safety measures provided");
+    }
+
+    @Test
+    void readsEveryAnalysisOfABatchAnswer() throws IOException {
+        GeminiAnswer answer = read("""
+                ```
+                [{"activityId": "a1", "analysis": {"overall": "First."}},
+                 "not an analysis",
+                 {"activityId": "a2", "analysis": {"overall": "Second."}}]
+                ```""", -1);
+
+        assertThat(answer.analyses()).extracting(Analysis::activityId).containsExactly("a1", "a2");
+        assertThat(answer.analyses()).extracting(Analysis::recommendation)
+                .containsExactly("Overall: First.", "Overall: Second.");
+        assertThat(answer.totalTokens()).isEqualTo(-1);
+    }
+
+    @Test
+    void answerThatIsNotJsonIsRejected() {
+        assertThatThrownBy(() -> read("I cannot help with that.", 5)).isInstanceOf(JsonParseException.class);
+    }
+
+    @Test
+    void responseWithoutCandidatesIsRejected() {
+        assertThatThrownBy(() -> GeminiResponseReader.read(stream("{\"promptFeedback\": {\"blockReason\": \"OTHER\"}}")))
+                .isInstanceOf(JsonParseException.class)
+                .hasMessageContaining("no answer text");
+    }
+
+    private static GeminiAnswer read(String text, int totalTokens) throws IOException {
+        String usage = totalTokens < 0 ? "" : ", \"usageMetadata\": {\"totalTokenCount\": " + totalTokens + "}";
+        return GeminiResponseReader.read(stream("{\"candidates\": [{\"content\": {\"role\": \"model\", \"parts\": "
+                + "[{\"text\": " + quote(text) + "}]}, \"finishReason\": \"STOP\"}]" + usage + "}"));
+    }
+
+    private static String quote(String text) throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(text);
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
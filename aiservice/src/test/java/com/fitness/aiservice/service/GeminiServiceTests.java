@@ -0,0 +1,100 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+class GeminiServiceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger requests = new AtomicInteger();
+    private DisposableServer gemini;
+
+    @AfterEach
+    void stopGemini() {
+        gemini.disposeNow();
+    }
+
+    @Test
+    void throttledRequestIsRetriedAfterRetryAfter() {
+        GeminiService geminiService = geminiAnswering(HttpResponseStatus.TOO_MANY_REQUESTS);
+
+        long start = System.nanoTime();
+        String answer = text(geminiService.answer("question"));
+
+        assertThat(answer).isEqualTo("{\"ok\": true}");
+        assertThat(requests).hasValue(2);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(900));
+        assertThat(meterRegistry.get("ai.gemini.retries").tag("reason", "throttled").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("ai.gemini.throttled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        GeminiService geminiService = geminiAnswering(HttpResponseStatus.BAD_REQUEST);
+
+        assertThatThrownBy(() -> geminiService.answer("question").block(Duration.ofSeconds(10)))
+                .isInstanceOf(WebClientResponseException.BadRequest.class);
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void slowAnswerTimesOutAndIsRetried() {
+        gemini = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> requests.incrementAndGet() == 1
+                        ? response.sendString(Mono.just("late").delayElement(Duration.ofSeconds(5)))
+                        : response.sendString(Mono.just("{\"ok\": true}")))
+                .bindNow();
+
+        assertThat(text(geminiService().answer("question"))).isEqualTo("{\"ok\": true}");
+        assertThat(requests).hasValue(2);
+        assertThat(meterRegistry.get("ai.gemini.retries").tag("reason", "timeout").counter().count()).isEqualTo(1);
+    }
+
+    private static String text(Mono<DataBuffer> answer) {
+        DataBuffer buffer = answer.block(Duration.ofSeconds(15));
+        try {
+            return buffer.toString(StandardCharsets.UTF_8);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    // Fails the first request with the status, answers the rest
+    private GeminiService geminiAnswering(HttpResponseStatus firstStatus) {
+        gemini = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> requests.incrementAndGet() == 1
+                        ? response.status(firstStatus).header(HttpHeaders.RETRY_AFTER, "1").send()
+                        : response.sendString(Mono.just("{\"ok\": true}")))
+                .bindNow();
+        return geminiService();
+    }
+
+    // 2s per attempt: far short of the slow stub's 5s, and far beyond what any other request needs on a loaded machine
+    private GeminiService geminiService() {
+        return new GeminiService(WebClient.builder(),
+                new GeminiRateLimiter(meterRegistry, 100, 1, 100, 1, 0.5),
+                new GeminiConcurrencyLimiter(meterRegistry, 16), meterRegistry,
+                "http://localhost:" + gemini.port() + "/generate?key=", "test",
+                Duration.ofSeconds(2), 2, Duration.ofMillis(10), Duration.ofMillis(50));
+    }
+}
@@ -0,0 +1,162 @@
+package com.fitness.aiservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.CachedRecommendation;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.model.SensorSeries;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class RecommendationCacheTests {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RecommendationCache cache = new RecommendationCache(mongoTemplate, meterRegistry, true, 100,
+            Duration.ofDays(7), 5, 50, List.of("distance=1", "pace=0.5", "heartRate=5"));
+
+    @Test
+    void similarActivitiesShareAFingerprint() {
+        Activity run = activity("RUNNING", 44, 510, Map.of("distance", 8.1, "pace", 5.4));
+        Activity sameRun = activity("running", 46, 490, Map.of("pace", 5.6, "distance", 8.4));
+        Activity longerRun = activity("RUNNING", 60, 510, Map.of("distance", 8.1, "pace", 5.4));
+        Activity runWithoutPace = activity("RUNNING", 44, 510, Map.of("distance", 8.1));
+
+        assertThat(cache.fingerprint(sameRun)).isEqualTo(cache.fingerprint(run));
+        assertThat(cache.fingerprint(longerRun)).isNotEqualTo(cache.fingerprint(run));
+        assertThat(cache.fingerprint(runWithoutPace)).isNotEqualTo(cache.fingerprint(run));
+    }
+
+    @Test
+    void metricValuesOutsideTheirBucketSplitTheFingerprint() {
+        Activity run = activity("RUNNING", 44, 510, Map.of("distance", 8.1, "pace", 5.4));
+        Activity fasterRun = activity("RUNNING", 44, 510, Map.of("distance", 8.1, "pace", 4.4));
+
+        assertThat(cache.fingerprint(fasterRun)).isNotEqualTo(cache.fingerprint(run));
+    }
+
+    @Test
+    void sensorSeriesAreComparedByTheFiguresThePromptQuotes() {
+        Activity easy = activity("RUNNING", 44, 510, Map.of());
+        easy.setSensorSeries(Map.of("heartRate", series(120, 130, 140)));
+        Activity sameEffort = activity("RUNNING", 44, 510, Map.of());
+        sameEffort.setSensorSeries(Map.of("heartRate", series(121, 129, 139)));
+        Activity hard = activity("RUNNING", 44, 510, Map.of());
+        hard.setSensorSeries(Map.of("heartRate", series(150, 170, 185)));
+
+        assertThat(cache.fingerprint(sameEffort)).isEqualTo(cache.fingerprint(easy));
+        assertThat(cache.fingerprint(hard)).isNotEqualTo(cache.fingerprint(easy));
+    }
+
+    @Test
+    void activityWithAMetricThatCannotBeBucketedIsNeverCached() {
+        Activity run = activity("RUNNING", 44, 510, Map.of("distance", 8.1, "vo2max", 52));
+        Activity labelled = activity("RUNNING", 44, 510, Map.of("distance", "eight km"));
+        Activity withPower = activity("CYCLING", 60, 700, Map.of());
+        withPower.setSensorSeries(Map.of("power", series(200, 250)));
+
+        assertThat(cache.fingerprint(run)).isNull();
+        assertThat(cache.fingerprint(labelled)).isNull();
+        assertThat(cache.fingerprint(withPower)).isNull();
+
+        cache.store(null, Recommendation.builder().recommendation("Overall: fine").build());
+        assertThat(cache.lookup(null).blockOptional()).isEmpty();
+        verify(mongoTemplate, never()).save(any());
+        verify(mongoTemplate, never()).findById(anyString(), any());
+        assertThat(meterRegistry.get("ai.recommendation.cache.lookups").tag("result", "uncacheable").counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void storedRecommendationIsServedLocallyToTheNextSimilarActivity() {
+        Activity first = activity("RUNNING", 45, 500, Map.of());
+        String fingerprint = cache.fingerprint(first);
+        cache.store(fingerprint, Recommendation.builder().recommendation("Overall: steady")
+                .improvements(List.of("Longer cool-down")).build());
+        verify(mongoTemplate, timeout(1000)).save(any(CachedRecommendation.class));
+
+        CachedRecommendation cached = cache.lookup(fingerprint).block();
+
+        Recommendation next = cached.toRecommendation(activity("RUNNING", 45, 500, Map.of()));
+        assertThat(next.getRecommendation()).isEqualTo("Overall: steady");
+        assertThat(next.getImprovements()).containsExactly("Longer cool-down");
+        verify(mongoTemplate, never()).findById(anyString(), any());
+        assertThat(meterRegistry.get("ai.recommendation.cache.hit.ratio").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void missFallsThroughToMongoAndCountsAsAMiss() {
+        when(mongoTemplate.findById(anyString(), any())).thenReturn(null);
+
+        assertThat(cache.lookup("unknown").blockOptional()).isEmpty();
+        assertThat(meterRegistry.get("ai.recommendation.cache.lookups").tag("result", "miss").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void cacheHitSkipsGemini() {
+        Activity activity = activity("CYCLING", 90, 900, Map.of());
+        cache.store(cache.fingerprint(activity), Recommendation.builder().recommendation("Overall: strong").build());
+        GeminiService geminiService = mock(GeminiService.class);
+        when(geminiService.answer(anyString())).thenReturn(Mono.error(new AssertionError("Gemini was called")));
+
+        Recommendation recommendation = new ActivityAiService(geminiService, cache, meterRegistry, 1, Duration.ZERO)
+                .generateRecommendation(activity).block();
+
+        assertThat(recommendation.getRecommendation()).isEqualTo("Overall: strong");
+        assertThat(recommendation.getActivityId()).isEqualTo(activity.getId());
+    }
+
+    // Whole-number samples one millisecond apart, in the format activity-service writes
+    private static SensorSeries series(long... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, 1);
+        writeVarint(out, values.length);
+        writeVarint(out, 0);
+        for (int i = 0; i < values.length; i++) {
+            writeVarint(out, i == 1 ? 2 : 0);
+        }
+        long previous = 0;
+        for (long value : values) {
+            writeVarint(out, (value - previous << 1) ^ (value - previous >> 63));
+            previous = value;
+        }
+        return new SensorSeries(out.toByteArray());
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static Activity activity(String type, int duration, int calories, Map<String, Object> metrics) {
+        Activity activity = new Activity();
+        activity.setId("activity-" + duration);
+        activity.setUserId("user-1");
+        activity.setType(type);
+        activity.setDuration(duration);
+        activity.setCaloriesBurned(calories);
+        activity.setAdditionalMetrics(metrics);
+        return activity;
+    }
+}
@@ -0,0 +1,141 @@
+package com.fitness.benchmarks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.netty.DisposableServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * A wearable sync job uploading {@link #ACTIVITIES_PER_JOB} workouts to
+ * activity-service, sent either one {@code POST /api/activities} at a time
+ * (with a few in parallel, like a client would) when {@code batchSize} is 1,
+ * or through {@code POST /api/activities/batch}. Mongo is stubbed with a
+ * per-round-trip latency plus a small per-document cost, so the numbers show
+ * what batching saves in round trips and HTTP overhead. One operation is one
+ * whole job.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ActivityBatchIngestBenchmark {
+
+    private static final Duration USER_SERVICE_LATENCY = Duration.ofMillis(10);
+    private static final Duration MONGO_ROUND_TRIP = Duration.ofMillis(2);
+    private static final Duration MONGO_PER_DOCUMENT = Duration.ofNanos(20_000);
+
+    private static final int ACTIVITIES_PER_JOB = 500;
+    private static final int SINGLE_ITEM_CONCURRENCY = 8;
+
+    @Param({ "1", "100", "500" })
+    public int batchSize;
+
+    private LoopResources stubLoops;
+    private DisposableServer userService;
+    private ConfigurableApplicationContext context;
+    private WebClient client;
+
+    @Setup
+    public void setUp() {
+        stubLoops = LoopResources.create("user-service-stub");
+        userService = ActivityServiceHarness.startUserService(stubLoops, USER_SERVICE_LATENCY);
+        context = ActivityServiceHarness.startService(Stubs.class, userService.port(),
+                "spring.threads.virtual.enabled=true");
+        client = WebClient.builder()
+                .baseUrl("http://localhost:" + ActivityServiceHarness.port(context))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        userService.disposeNow();
+        stubLoops.disposeLater().block();
+    }
+
+    @Benchmark
+    public void syncJob() {
+        if (batchSize == 1) {
+            Flux.range(0, ACTIVITIES_PER_JOB)
+                    .flatMap(i -> client.post()
+                            .uri("/api/activities")
+                            .header("X-User-Id", "user-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(activity(i))
+                            .retrieve()
+                            .toBodilessEntity(), SINGLE_ITEM_CONCURRENCY)
+                    .blockLast(Duration.ofMinutes(1));
+            return;
+        }
+        Flux.range(0, ACTIVITIES_PER_JOB / batchSize)
+                .concatMap(batch -> client.post()
+                        .uri("/api/activities/batch")
+                        .header("X-User-Id", "user-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(IntStream.range(0, batchSize).mapToObj(i -> activity(batch * batchSize + i))
+                                .toList())
+                        .retrieve()
+                        .toBodilessEntity())
+                .blockLast(Duration.ofMinutes(1));
+    }
+
+    private static Map<String, Object> activity(int i) {
+        return Map.of("type", "RUNNING", "duration", 30 + i % 30, "caloriesBurned", 300 + i,
+                "startTime", "07:30", "additionalMetrics", Map.of("distanceKm", 5.2, "avgHeartRate", 148));
+    }
+
+    // Registered as an extra source rather than a @Configuration so component scanning never picks it up
+    static class Stubs {
+
+        @Bean
+        @Primary
+        ActivityRepository benchmarkActivityRepository() {
+            return ActivityServiceHarness.activityRepository((proxy, method, methodArgs) -> {
+                switch (method.getName()) {
+                    case "insert" -> {
+                        Thread.sleep(MONGO_ROUND_TRIP.plus(MONGO_PER_DOCUMENT));
+                        Activity activity = (Activity) methodArgs[0];
+                        activity.setId(UUID.randomUUID().toString());
+                        return activity;
+                    }
+                    case "insertUnordered" -> {
+                        List<?> activities = (List<?>) methodArgs[0];
+                        Thread.sleep(MONGO_ROUND_TRIP.plus(MONGO_PER_DOCUMENT.multipliedBy(activities.size())));
+                        return Map.of();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        }
+    }
+}
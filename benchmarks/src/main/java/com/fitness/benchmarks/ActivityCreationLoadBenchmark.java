@@ -0,0 +1,131 @@
+package com.fitness.benchmarks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.repository.ActivityRepository;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Load test for {@code POST /api/activities} on platform threads (the old
+ * default) and on virtual threads, with {@link #CONCURRENCY} callers that
+ * each keep one request in flight. Both of the service's I/O waits, the
+ * user-service call and the Mongo write, take a fixed 50ms, so the request
+ * thread model is the only thing that changes between the two runs.
+ *
+ * Reports the latency distribution; with a fixed number of callers the
+ * throughput is {@link #CONCURRENCY} divided by the mean latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(ActivityCreationLoadBenchmark.CONCURRENCY)
+@Fork(1)
+public class ActivityCreationLoadBenchmark {
+
+    static final int CONCURRENCY = 400;
+
+    private static final Duration USER_SERVICE_LATENCY = Duration.ofMillis(50);
+    private static final Duration MONGO_LATENCY = Duration.ofMillis(50);
+
+    // Scaled down from Tomcat's 200 so the thread cap shows up before the CPU does on small machines;
+    // platform threads then top out at TOMCAT_THREADS / 100ms, about 500 requests per second
+    private static final int TOMCAT_THREADS = 50;
+
+    @Param({ "false", "true" })
+    public boolean virtualThreads;
+
+    private LoopResources stubLoops;
+    private DisposableServer userService;
+    private ConfigurableApplicationContext context;
+    private ConnectionProvider connections;
+    private WebClient client;
+
+    @Setup
+    public void setUp() {
+        stubLoops = LoopResources.create("user-service-stub");
+        userService = ActivityServiceHarness.startUserService(stubLoops, USER_SERVICE_LATENCY);
+        context = ActivityServiceHarness.startService(Stubs.class, userService.port(),
+                "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                // Every request waits on user-service, as it did before validations were cached
+                "user-validation.cache.max-size=0");
+        connections = ConnectionProvider.builder("load")
+                .maxConnections(CONCURRENCY)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        client = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .baseUrl("http://localhost:" + ActivityServiceHarness.port(context))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        connections.disposeLater().block();
+        context.close();
+        userService.disposeNow();
+        stubLoops.disposeLater().block();
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> createActivity() {
+        return client.post()
+                .uri("/api/activities")
+                .header("X-User-Id", "user-" + ThreadLocalRandom.current().nextInt(100))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("type", "RUNNING", "duration", 30, "caloriesBurned", 300, "startTime", "07:30"))
+                .retrieve()
+                .toBodilessEntity()
+                .block(Duration.ofMinutes(1));
+    }
+
+    // Registered as an extra source rather than a @Configuration so component scanning never picks it up
+    static class Stubs {
+
+        @Bean
+        @Primary
+        ActivityRepository benchmarkActivityRepository() {
+            return ActivityServiceHarness.activityRepository((proxy, method, methodArgs) -> {
+                if (method.getName().equals("insert")) {
+                    Thread.sleep(MONGO_LATENCY);
+                    Activity activity = (Activity) methodArgs[0];
+                    activity.setId(UUID.randomUUID().toString());
+                    return activity;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        }
+    }
+}
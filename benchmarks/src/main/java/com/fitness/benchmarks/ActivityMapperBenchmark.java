@@ -0,0 +1,64 @@
+package com.fitness.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fitness.activityservice.dto.ActivityRequestDTO;
+import com.fitness.activityservice.dto.ActivityResponseDTO;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+
+/**
+ * activity-service's request and response mapping, run once per created or
+ * returned activity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivityMapperBenchmark {
+
+    private ActivityRequestDTO request;
+    private Activity activity;
+
+    @Setup
+    public void setUp() {
+        request = new ActivityRequestDTO();
+        request.setUserId("user-1");
+        request.setType(ActivityType.RUNNING);
+        request.setDuration(45);
+        request.setCaloriesBurned(520);
+        request.setStartTime("07:30");
+        request.setAdditionalMetrics(Map.of("distance", 8.2, "averageHeartRate", 148));
+
+        activity = ActivityMapper.mapToEntity(request);
+        activity.setId("6710c4f2a1b2c3d4e5f60718");
+        activity.setCreatedAt(LocalDateTime.of(2026, 10, 18, 7, 31));
+        activity.setUpdatedAt(LocalDateTime.of(2026, 10, 18, 7, 31));
+    }
+
+    @Benchmark
+    public Activity mapToEntity() {
+        return ActivityMapper.mapToEntity(request);
+    }
+
+    @Benchmark
+    public ActivityResponseDTO mapToResponseDTO() {
+        return ActivityMapper.mapToResponseDTO(activity);
+    }
+}
@@ -0,0 +1,124 @@
+package com.fitness.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.fitness.activityservice.ActivityserviceApplication;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.repository.ActivityRepository;
+import com.fitness.activityservice.service.ActivityRollupService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Runs activity-service for real on Tomcat, for the benchmarks that drive it
+ * over HTTP. Its I/O waits are stubbed: user-service is a local HTTP server
+ * that answers after a fixed delay, and the benchmark brings its own stand-in
+ * for Mongo. RabbitMQ is off the request path since the outbox, so the relay
+ * is switched off.
+ */
+final class ActivityServiceHarness {
+
+    // The jar carries every service's starters; keep the ones activity-service does not use from activating
+    private static final String EXCLUDED_AUTO_CONFIGURATIONS = Stream.of(
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            SecurityAutoConfiguration.class,
+            SecurityFilterAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class,
+            ManagementWebSecurityAutoConfiguration.class)
+            .map(Class::getName)
+            .collect(Collectors.joining(","));
+
+    private ActivityServiceHarness() {
+    }
+
+    /**
+     * Boots the service on a random port with the given stub beans, pointing
+     * it at a local user-service and keeping the outbox relay off.
+     */
+    static ConfigurableApplicationContext startService(Class<?> stubs, int userServicePort, String... properties) {
+        List<String> allProperties = new ArrayList<>(List.of(
+                "spring.application.name=activity-service",
+                "spring.autoconfigure.exclude=" + EXCLUDED_AUTO_CONFIGURATIONS,
+                "spring.cloud.gateway.server.webflux.enabled=false",
+                "server.port=0",
+                "spring.cloud.config.enabled=false",
+                "eureka.client.enabled=false",
+                "spring.cloud.discovery.client.simple.instances.user-service[0].uri=http://localhost:"
+                        + userServicePort,
+                "rabbitmq.exchange.name=fitness.exchange",
+                "rabbitmq.queue.name=fitness.queue",
+                "rabbitmq.routing.key=activity.tracking",
+                "rabbitmq.dead-letter.exchange=fitness.dlx",
+                "outbox.relay.enabled=false",
+                "activity.indexes.create-on-startup=false",
+                "logging.level.root=WARN"));
+        allProperties.addAll(List.of(properties));
+        return new SpringApplicationBuilder(ActivityserviceApplication.class, stubs, NoRollups.class)
+                .properties(allProperties.toArray(String[]::new))
+                .run();
+    }
+
+    // Own event loops: closing an application context disposes the global ones
+    static DisposableServer startUserService(LoopResources loops, Duration latency) {
+        return HttpServer.create()
+                .runOn(loops)
+                .port(0)
+                .handle((request, response) -> response.header("Content-Type", "application/json")
+                        .sendString(Mono.just("true").delayElement(latency)))
+                .bindNow();
+    }
+
+    // Stand-in for Mongo: answers Object's methods itself and hands repository calls to the benchmark
+    static ActivityRepository activityRepository(InvocationHandler repositoryCalls) {
+        return (ActivityRepository) Proxy.newProxyInstance(ActivityRepository.class.getClassLoader(),
+                new Class<?>[] { ActivityRepository.class }, (proxy, method, methodArgs) -> switch (method.getName()) {
+                    case "toString" -> "benchmarkActivityRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == methodArgs[0];
+                    default -> repositoryCalls.invoke(proxy, method, methodArgs);
+                });
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    // Rollups are written with MongoTemplate, which has no stand-in here
+    static class NoRollups {
+
+        @Bean
+        @Primary
+        ActivityRollupService benchmarkActivityRollupService(MongoTemplate mongoTemplate,
+                MeterRegistry meterRegistry) {
+            return new ActivityRollupService(mongoTemplate, meterRegistry) {
+                @Override
+                public void record(Collection<Activity> activities) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.fitness.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.service.ActivityAiService;
+import com.fitness.aiservice.service.GeminiService;
+import com.fitness.aiservice.service.RecommendationCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * ai-service turning an activity into a recommendation, with Gemini
+ * answering instantly from a recorded response: building the prompt and
+ * parsing the answer, which is what the service spends CPU on per message.
+ * {@link #createObjectMapper()} shows what creating a mapper costs on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiResponseBenchmark {
+
+    static final String GEMINI_RESPONSE = """
+            {"candidates": [{"content": {"role": "model", "parts": [{"text": "```json\\n{\\n  \\"analysis\\": {\\n    \
+            \\"overall\\": \\"A steady 45 minute run at a moderate effort.\\",\\n    \\"pace\\": \\"Consistent pace \
+            of about 5:30 per km.\\",\\n    \\"heartRate\\": \\"Mostly in zone 2 and 3.\\",\\n    \
+            \\"caloriesBurned\\": \\"520 kcal is in line with the duration and effort.\\"\\n  },\\n  \
+            \\"improvements\\": [\\n    {\\"area\\": \\"Cadence\\", \\"recommendation\\": \\"Aim for 170 steps per \
+            minute.\\"},\\n    {\\"area\\": \\"Recovery\\", \\"recommendation\\": \\"Add an easy day after long \
+            runs.\\"}\\n  ],\\n  \\"suggestions\\": [\\n    {\\"workout\\": \\"Intervals\\", \\"description\\": \
+            \\"6 x 800 m at 5 km pace with 400 m jog recovery.\\"},\\n    {\\"workout\\": \\"Long run\\", \
+            \\"description\\": \\"75 minutes at an easy, conversational pace.\\"}\\n  ],\\n  \\"safety\\": [\\n    \
+            \\"Warm up for 10 minutes before speed work.\\",\\n    \\"Stay hydrated on runs over an hour.\\"\\n  \
+            ]\\n}\\n```"}]}, "finishReason": "STOP"}], "usageMetadata": {"promptTokenCount": 412, \
+            "candidatesTokenCount": 236, "totalTokenCount": 648}}
+            """;
+
+    static final byte[] GEMINI_RESPONSE_BYTES = GEMINI_RESPONSE.getBytes(StandardCharsets.UTF_8);
+
+    private ActivityAiService activityAiService;
+    private Activity activity;
+
+    @Setup
+    public void setUp() {
+        // Never calls out, so needs no rate or concurrency limiter
+        GeminiService recordedGemini = new GeminiService(WebClient.builder(), null, null, new SimpleMeterRegistry(),
+                null, null, Duration.ofSeconds(30), 0, Duration.ofSeconds(1), Duration.ofSeconds(1)) {
+            @Override
+            public Mono<DataBuffer> answer(String question) {
+                return Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(GEMINI_RESPONSE_BYTES));
+            }
+        };
+        activityAiService = new ActivityAiService(recordedGemini,
+                // Disabled, so every invocation parses the response
+                new RecommendationCache(null, new SimpleMeterRegistry(), false, 1, Duration.ofDays(1), 5, 50, List.of()),
+                new SimpleMeterRegistry(), 1, Duration.ZERO);
+
+        activity = new Activity();
+        activity.setId("6710c4f2a1b2c3d4e5f60718");
+        activity.setUserId("user-1");
+        activity.setType("RUNNING");
+        activity.setDuration(45);
+        activity.setCaloriesBurned(520);
+        activity.setStartTime(LocalDateTime.of(2026, 10, 18, 7, 30));
+        activity.setAdditionalMetrics(Map.of("distance", 8.2, "averageHeartRate", 148));
+    }
+
+    @Benchmark
+    public Recommendation generateRecommendation() {
+        return activityAiService.generateRecommendation(activity).block();
+    }
+
+    @Benchmark
+    public ObjectMapper createObjectMapper() {
+        return new ObjectMapper();
+    }
+}
@@ -0,0 +1,63 @@
+package com.fitness.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JSON result files written by {@link BenchmarkRunner}, e.g.
+ * from the commit before and after a change, printing the score and the
+ * allocations per operation of every benchmark present in both.
+ *
+ * {@code java -cp target/benchmarks.jar com.fitness.benchmarks.BenchmarkComparison results/old.json results/new.json}
+ */
+public class BenchmarkComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> candidate = read(new File(args[1]));
+
+        System.out.printf("%-70s %12s %12s %8s %14s %14s%n", "benchmark", "baseline", "candidate", "change",
+                "B/op before", "B/op after");
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            JsonNode after = candidate.get(entry.getKey());
+            if (after == null) {
+                continue;
+            }
+            JsonNode before = entry.getValue();
+            double scoreBefore = before.path("primaryMetric").path("score").asDouble();
+            double scoreAfter = after.path("primaryMetric").path("score").asDouble();
+            System.out.printf("%-70s %12.3f %12.3f %+7.1f%% %14s %14s%n", entry.getKey(), scoreBefore, scoreAfter,
+                    (scoreAfter - scoreBefore) / scoreBefore * 100, allocation(before), allocation(after));
+        }
+    }
+
+    // Keyed by benchmark, mode and parameters, so parameterised runs are compared one to one
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.fitness.benchmarks.", ""));
+            key.append(" (").append(result.path("mode").asText()).append(')');
+            result.path("params").properties().forEach(param -> key.append(' ').append(param.getKey())
+                    .append('=').append(param.getValue().asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String allocation(JsonNode result) {
+        JsonNode allocation = result.path("secondaryMetrics").path(ALLOCATION);
+        return allocation.isMissingNode() ? "-" : String.format("%.0f", allocation.path("score").asDouble());
+    }
+}
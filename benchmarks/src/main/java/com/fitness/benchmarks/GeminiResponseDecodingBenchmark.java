@@ -0,0 +1,90 @@
+package com.fitness.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.service.GeminiResponseReader;
+
+/**
+ * Decoding one recorded Gemini response into the fields of a
+ * recommendation. {@link #treeWithRegex()} is how ai-service used to do it:
+ * the body as a String, a new ObjectMapper, two JSON trees, regex fence
+ * stripping and String.format; {@link #streaming()} is
+ * {@link GeminiResponseReader} reading the response bytes. Run with the GC
+ * profiler (the default of {@link BenchmarkRunner}) for bytes per response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeminiResponseDecodingBenchmark {
+
+    private static final byte[] RESPONSE = AiResponseBenchmark.GEMINI_RESPONSE_BYTES;
+
+    @Benchmark
+    public Object treeWithRegex() throws Exception {
+        String aiResponse = new String(RESPONSE, StandardCharsets.UTF_8);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode rootNode = objectMapper.readTree(aiResponse);
+        JsonNode textNode = rootNode.path("candidates").get(0).path("content").path("parts").get(0).path("text");
+        String jsonContent = textNode.asText().replaceAll("```json\\n", "").replaceAll("\\n```", "").trim();
+        JsonNode parsedJson = objectMapper.readTree(jsonContent);
+        JsonNode analysisNode = parsedJson.path("analysis");
+        StringBuilder fullAnalysis = new StringBuilder();
+        addAnalysisSection(fullAnalysis, analysisNode, "overall", "Overall: ");
+        addAnalysisSection(fullAnalysis, analysisNode, "pace", "Pace: ");
+        addAnalysisSection(fullAnalysis, analysisNode, "heartRate", "Heart Rate: ");
+        addAnalysisSection(fullAnalysis, analysisNode, "caloriesBurned", "Calories: ");
+
+        return List.of(fullAnalysis.toString().trim(),
+                extractPairs(parsedJson.path("improvements"), "area", "recommendation"),
+                extractPairs(parsedJson.path("suggestions"), "workout", "description"),
+                extractSafetyInstructions(parsedJson.path("safety")));
+    }
+
+    @Benchmark
+    public Object streaming() throws Exception {
+        return GeminiResponseReader.read(DefaultDataBufferFactory.sharedInstance.wrap(RESPONSE));
+    }
+
+    private static List<String> extractPairs(JsonNode node, String first, String second) {
+        List<String> pairs = new ArrayList<>();
+        if (node.isArray()) {
+            node.forEach(pair -> pairs.add(String.format("%s: %s", pair.path(first).asText(),
+                    pair.path(second).asText())));
+        }
+        return pairs.isEmpty() ? Collections.singletonList("None provided") : pairs;
+    }
+
+    private static List<String> extractSafetyInstructions(JsonNode node) {
+        List<String> safetyMeasures = new ArrayList<>();
+        if (node.isArray()) {
+            node.forEach(safety -> safetyMeasures.add(safety.asText()));
+        }
+        return safetyMeasures.isEmpty() ? Collections.singletonList("None provided") : safetyMeasures;
+    }
+
+    private static void addAnalysisSection(StringBuilder stringBuilder, JsonNode node, String key, String prefix) {
+        if (!node.path(key).isMissingNode()) {
+            stringBuilder.append(prefix).append(node.path(key).asText()).append("\n\n");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.fitness.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.dto.ActivityRequestDTO;
+import com.fitness.activityservice.dto.ActivityResponseDTO;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.UserResponse;
+
+/**
+ * Reading request bodies and writing response bodies of the busiest
+ * endpoints, with an {@link ObjectMapper} configured the way Spring MVC
+ * configures its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private byte[] activityRequestJson;
+    private byte[] registerRequestJson;
+    private ActivityResponseDTO activityResponse;
+    private UserResponse userResponse;
+
+    @Setup
+    public void setUp() throws Exception {
+        ActivityRequestDTO activityRequest = new ActivityRequestDTO();
+        activityRequest.setType(ActivityType.RUNNING);
+        activityRequest.setDuration(45);
+        activityRequest.setCaloriesBurned(520);
+        activityRequest.setStartTime("07:30");
+        activityRequest.setAdditionalMetrics(Map.of("distance", 8.2, "averageHeartRate", 148));
+        activityRequestJson = objectMapper.writeValueAsBytes(activityRequest);
+
+        var activity = ActivityMapper.mapToEntity(activityRequest);
+        activity.setId("6710c4f2a1b2c3d4e5f60718");
+        activity.setUserId("user-1");
+        activityResponse = ActivityMapper.mapToResponseDTO(activity);
+
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setEmail("runner@example.com");
+        registerRequest.setPassword("secret-password");
+        registerRequest.setKeycloakId("0b7e4c9a-3f1d-4d7e-9c2a-5e8f1a2b3c4d");
+        registerRequest.setFirstName("Ada");
+        registerRequest.setLastName("Runner");
+        registerRequestJson = objectMapper.writeValueAsBytes(registerRequest);
+
+        userResponse = new UserResponse();
+        userResponse.setId("5f2b8e1c-7a4d-4c3b-9e6f-1d2a3b4c5d6e");
+        userResponse.setKeycloakId(registerRequest.getKeycloakId());
+        userResponse.setEmail(registerRequest.getEmail());
+        userResponse.setFirstName(registerRequest.getFirstName());
+        userResponse.setLastName(registerRequest.getLastName());
+        userResponse.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+        userResponse.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+    }
+
+    @Benchmark
+    public ActivityRequestDTO readActivityRequest() throws Exception {
+        return objectMapper.readValue(activityRequestJson, ActivityRequestDTO.class);
+    }
+
+    @Benchmark
+    public byte[] writeActivityResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(activityResponse);
+    }
+
+    @Benchmark
+    public RegisterRequest readRegisterRequest() throws Exception {
+        return objectMapper.readValue(registerRequestJson, RegisterRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeUserResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(userResponse);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fitness.benchmarks;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import com.fitness.gateway.KeycloakUserSyncFilter;
+import com.fitness.gateway.user.RegisterRequest;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * Per-request cost of resolving the user in {@link KeycloakUserSyncFilter}:
+ * re-parsing the bearer token (the old behaviour) versus reading the subject
+ * from the {@link Jwt} the resource server already decoded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeycloakUserSyncFilterBenchmark {
+
+    private String authorizationHeader;
+    private Jwt jwt;
+
+    @Setup
+    public void setUp() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"bench\"}".getBytes());
+        String payload = encoder.encodeToString(("{\"sub\":\"0f4c2b3e-8d6a-4f7b-9e21-3c5d7a9b1e42\","
+                + "\"email\":\"jane.doe@example.com\",\"given_name\":\"Jane\",\"family_name\":\"Doe\","
+                + "\"iss\":\"http://localhost:8181/realms/fitness-oauth2\",\"iat\":1700000000,\"exp\":1700000300,"
+                + "\"scope\":\"openid email profile\",\"preferred_username\":\"jane\"}").getBytes());
+        String signature = encoder.encodeToString(new byte[256]);
+        String token = header + "." + payload + "." + signature;
+
+        authorizationHeader = "Bearer " + token;
+        jwt = Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("0f4c2b3e-8d6a-4f7b-9e21-3c5d7a9b1e42")
+                .claim("email", "jane.doe@example.com")
+                .claim("given_name", "Jane")
+                .claim("family_name", "Doe")
+                .build();
+    }
+
+    @Benchmark
+    public RegisterRequest parseBearerToken() throws Exception {
+        String tokenWithoutBearer = authorizationHeader.replace("Bearer ", "");
+        SignedJWT signedJWT = SignedJWT.parse(tokenWithoutBearer);
+        JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setEmail(claims.getStringClaim("email"));
+        registerRequest.setKeycloakId(claims.getStringClaim("sub"));
+        registerRequest.setFirstName(claims.getStringClaim("given_name"));
+        registerRequest.setLastName(claims.getStringClaim("family_name"));
+        registerRequest.setPassword("dummypassword123");
+        return registerRequest;
+    }
+
+    @Benchmark
+    public String subjectFromPrincipal() {
+        return jwt.getSubject();
+    }
+
+    @Benchmark
+    public RegisterRequest registrationFromPrincipal() {
+        return KeycloakUserSyncFilter.getUserDetails(jwt);
+    }
+}
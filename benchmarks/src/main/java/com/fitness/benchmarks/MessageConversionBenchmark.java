@@ -0,0 +1,85 @@
+package com.fitness.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.SensorSeries;
+
+/**
+ * The activity message on its way through RabbitMQ: converted to JSON by
+ * activity-service's outbox relay and back into ai-service's own
+ * {@code Activity} by its listener, both with the converters the services
+ * configure. With {@code sensorSeries=hour} the activity carries an hour of
+ * per-second heart rate samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConversionBenchmark {
+
+    @Param({ "none", "hour" })
+    public String sensorSeries;
+
+    private final Jackson2JsonMessageConverter publisherConverter = new Jackson2JsonMessageConverter();
+    private final Jackson2JsonMessageConverter listenerConverter = new Jackson2JsonMessageConverter();
+
+    private Activity activity;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        activity = new Activity();
+        activity.setId("6710c4f2a1b2c3d4e5f60718");
+        activity.setUserId("user-1");
+        activity.setType(ActivityType.RUNNING);
+        activity.setDuration(60);
+        activity.setCaloriesBurned(700);
+        activity.setStartTime(LocalDateTime.of(2026, 10, 18, 7, 30));
+        activity.setCreatedAt(LocalDateTime.of(2026, 10, 18, 8, 31));
+        activity.setUpdatedAt(LocalDateTime.of(2026, 10, 18, 8, 31));
+        activity.setAdditionalMetrics(Map.of("distance", 10.4, "averageHeartRate", 142));
+        if (sensorSeries.equals("hour")) {
+            long[] timestamps = new long[3600];
+            double[] heartRate = new double[3600];
+            for (int i = 0; i < timestamps.length; i++) {
+                timestamps[i] = 1_760_000_000_000L + i * 1000L;
+                heartRate[i] = 130 + (int) (20 * Math.sin(i / 60.0));
+            }
+            activity.setSensorSeries(Map.of("heartRate", SensorSeries.of(timestamps, heartRate)));
+        }
+        message = toMessage();
+    }
+
+    @Benchmark
+    public Message toMessage() {
+        return publisherConverter.toMessage(activity, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object fromMessage() {
+        // What the listener container does for a @RabbitListener method taking an Activity
+        message.getMessageProperties().setInferredArgumentType(com.fitness.aiservice.model.Activity.class);
+        return listenerConverter.fromMessage(message);
+    }
+}
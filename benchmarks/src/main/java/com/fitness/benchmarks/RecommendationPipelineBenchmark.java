@@ -0,0 +1,152 @@
+package com.fitness.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import com.fitness.aiservice.service.ActivityAiService;
+import com.fitness.aiservice.service.ActivityMessageListener;
+import com.fitness.aiservice.service.GeminiConcurrencyLimiter;
+import com.fitness.aiservice.service.GeminiRateLimiter;
+import com.fitness.aiservice.service.GeminiService;
+import com.fitness.aiservice.service.RecommendationCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Messages per second through ai-service's {@link ActivityMessageListener}
+ * at different Gemini concurrency limits, against a local Gemini stand-in
+ * that answers after a fixed delay. The benchmark thread plays the listener
+ * container's consumer: one operation is one message taken off the queue,
+ * and like the real consumer it stops taking messages once the prefetch
+ * worth of them is unacked. A limit of 1 is what the old blocking listener
+ * did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class RecommendationPipelineBenchmark {
+
+    private static final Duration GEMINI_LATENCY = Duration.ofMillis(200);
+    private static final Duration MONGO_LATENCY = Duration.ofMillis(5);
+
+    private static final String GEMINI_RESPONSE = """
+            {"candidates": [{"content": {"parts": [{"text": "```json\\n{\\"analysis\\": {\\"overall\\": \
+            \\"A steady run.\\"}, \\"improvements\\": [], \\"suggestions\\": [], \\"safety\\": []}\\n```"}]}}]}
+            """;
+
+    @Param({ "1", "4", "16", "64" })
+    public int concurrency;
+
+    private LoopResources loops;
+    private DisposableServer gemini;
+    private ConnectionProvider connections;
+    private ActivityMessageListener listener;
+    private Semaphore unacked;
+    private final AtomicInteger failed = new AtomicInteger();
+    private int messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loops = LoopResources.create("gemini-stub");
+        gemini = HttpServer.create()
+                .runOn(loops)
+                .port(0)
+                .handle((request, response) -> response.header("Content-Type", "application/json")
+                        .sendString(Mono.just(GEMINI_RESPONSE).delayElement(GEMINI_LATENCY)))
+                .bindNow();
+        connections = ConnectionProvider.builder("gemini").maxConnections(256).build();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // A rate limit far above what the stub can be driven to, so only the concurrency limits throughput
+        GeminiRateLimiter rateLimiter = new GeminiRateLimiter(meterRegistry, 1_000_000, 1, 1_000_000, 1, 0.5);
+        GeminiService geminiService = new GeminiService(WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections))),
+                rateLimiter, new GeminiConcurrencyLimiter(meterRegistry, concurrency), meterRegistry, "http://localhost:" + gemini.port() + "/generate?key=", "benchmark",
+                Duration.ofSeconds(30), 0, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        ActivityAiService aiService = new ActivityAiService(geminiService,
+                // Disabled, so every message reaches the Gemini stub
+                new RecommendationCache(null, meterRegistry, false, 1, Duration.ofDays(1), 5, 50, List.of()),
+                // Unbatched, the stub only answers single-activity prompts
+                meterRegistry, 1, Duration.ZERO);
+        listener = new ActivityMessageListener(aiService, recommendationRepository());
+        unacked = new Semaphore(concurrency * 2);
+    }
+
+    @TearDown(Level.Iteration)
+    public void awaitUnacked() throws InterruptedException {
+        // Messages still in flight would otherwise be credited to the next iteration
+        unacked.acquire(concurrency * 2);
+        unacked.release(concurrency * 2);
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " messages failed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connections.disposeLater().block();
+        gemini.disposeNow();
+        loops.disposeLater().block();
+    }
+
+    @Benchmark
+    public void consumeMessage() throws InterruptedException {
+        unacked.acquire();
+        listener.processActivity(activity(messages++))
+                .doFinally(signal -> unacked.release())
+                .subscribe(ack -> {
+                }, error -> failed.incrementAndGet());
+    }
+
+    private static RecommendationRepository recommendationRepository() {
+        return (RecommendationRepository) Proxy.newProxyInstance(RecommendationRepository.class.getClassLoader(),
+                new Class<?>[] { RecommendationRepository.class }, (proxy, method, methodArgs) -> {
+                    if (method.getName().equals("save")) {
+                        Thread.sleep(MONGO_LATENCY);
+                        return methodArgs[0];
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Activity activity(int i) {
+        Activity activity = new Activity();
+        activity.setId("activity-" + i);
+        activity.setUserId("user-" + (i % 100));
+        activity.setType("RUNNING");
+        activity.setDuration(45);
+        activity.setCaloriesBurned(520);
+        return activity;
+    }
+}
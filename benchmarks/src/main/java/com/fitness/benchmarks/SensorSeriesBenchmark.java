@@ -0,0 +1,199 @@
+package com.fitness.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.config.MongoConfig;
+import com.fitness.activityservice.dto.ActivityResponseDTO;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import com.fitness.activityservice.model.SensorSeries;
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Compares an hour of per-second heart rate and pace samples stored the old
+ * way, as boxed numbers in {@code additionalMetrics}, with the same samples
+ * as {@link SensorSeries}. Prints the BSON and JSON sizes of both, then
+ * measures reading an activity from BSON (activity-service loading from
+ * Mongo) and from JSON (ai-service reading the message), with and without
+ * touching the samples.
+ *
+ * Run through this class to get the size table as well:
+ * {@code java -cp target/benchmarks.jar com.fitness.benchmarks.SensorSeriesBenchmark [jmh options]}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorSeriesBenchmark {
+
+    private static final int SAMPLES = 3600;
+    private static final long START = 1_760_000_000_000L;
+
+    private final Codec<Document> documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MappingMongoConverter converter;
+
+    private byte[] mapBson;
+    private byte[] seriesBson;
+    private byte[] mapJson;
+    private byte[] seriesJson;
+
+    public static void main(String[] args) throws Exception {
+        SensorSeriesBenchmark sizes = new SensorSeriesBenchmark();
+        sizes.setUp();
+        System.out.printf("%n%-18s %12s %12s%n", "format", "BSON bytes", "JSON bytes");
+        System.out.printf("%-18s %12d %12d%n", "additionalMetrics", sizes.mapBson.length, sizes.mapJson.length);
+        System.out.printf("%-18s %12d %12d%n%n", "sensorSeries", sizes.seriesBson.length, sizes.seriesJson.length);
+
+        String[] runnerArgs = new String[args.length + 1];
+        runnerArgs[0] = SensorSeriesBenchmark.class.getSimpleName();
+        System.arraycopy(args, 0, runnerArgs, 1, args.length);
+        BenchmarkRunner.main(runnerArgs);
+    }
+
+    @Setup
+    public void setUp() {
+        MongoCustomConversions conversions = MongoConfig.mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        long[] timestamps = new long[SAMPLES];
+        double[] heartRate = new double[SAMPLES];
+        double[] pace = new double[SAMPLES];
+        List<Long> boxedTimestamps = new ArrayList<>(SAMPLES);
+        List<Integer> boxedHeartRate = new ArrayList<>(SAMPLES);
+        List<Double> boxedPace = new ArrayList<>(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            timestamps[i] = START + i * 1000L;
+            heartRate[i] = 130 + (int) (20 * Math.sin(i / 60.0));
+            pace[i] = Math.round((5.5 + Math.sin(i / 90.0)) * 100) / 100.0;
+            boxedTimestamps.add(timestamps[i]);
+            boxedHeartRate.add((int) heartRate[i]);
+            boxedPace.add(pace[i]);
+        }
+
+        Activity mapActivity = activity();
+        mapActivity.setAdditionalMetrics(Map.of(
+                "heartRate", Map.of("timestamps", boxedTimestamps, "values", boxedHeartRate),
+                "pace", Map.of("timestamps", boxedTimestamps, "values", boxedPace)));
+        Activity seriesActivity = activity();
+        seriesActivity.setSensorSeries(Map.of(
+                "heartRate", SensorSeries.of(timestamps, heartRate),
+                "pace", SensorSeries.of(timestamps, pace)));
+
+        mapBson = toBson(mapActivity);
+        seriesBson = toBson(seriesActivity);
+        mapJson = toJson(mapActivity);
+        seriesJson = toJson(seriesActivity);
+    }
+
+    @Benchmark
+    public Activity readMapFromBson() {
+        return converter.read(Activity.class, fromBson(mapBson));
+    }
+
+    @Benchmark
+    public Activity readSeriesFromBson() {
+        return converter.read(Activity.class, fromBson(seriesBson));
+    }
+
+    @Benchmark
+    public double readAndSumMapFromBson() {
+        Map<?, ?> heartRate = (Map<?, ?>) readMapFromBson().getAdditionalMetrics().get("heartRate");
+        double sum = 0;
+        for (Object value : (List<?>) heartRate.get("values")) {
+            sum += ((Number) value).doubleValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double readAndSumSeriesFromBson() {
+        double sum = 0;
+        for (double value : readSeriesFromBson().getSensorSeries().get("heartRate").getValues()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ActivityResponseDTO readMapFromJson() throws Exception {
+        return objectMapper.readValue(mapJson, ActivityResponseDTO.class);
+    }
+
+    @Benchmark
+    public ActivityResponseDTO readSeriesFromJson() throws Exception {
+        return objectMapper.readValue(seriesJson, ActivityResponseDTO.class);
+    }
+
+    private static Activity activity() {
+        Activity activity = new Activity();
+        activity.setId("6710c4f2a1b2c3d4e5f60718");
+        activity.setUserId("user-1");
+        activity.setType(ActivityType.RUNNING);
+        activity.setDuration(60);
+        activity.setCaloriesBurned(700);
+        return activity;
+    }
+
+    private byte[] toBson(Activity activity) {
+        Document document = new Document();
+        converter.write(activity, document);
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    private Document fromBson(byte[] bson) {
+        return documentCodec.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+    }
+
+    private byte[] toJson(Activity activity) {
+        ActivityResponseDTO dto = new ActivityResponseDTO();
+        dto.setId(activity.getId());
+        dto.setUserId(activity.getUserId());
+        dto.setType(activity.getType());
+        dto.setDuration(activity.getDuration());
+        dto.setCaloriesBurned(activity.getCaloriesBurned());
+        dto.setAdditionalMetrics(activity.getAdditionalMetrics());
+        dto.setSensorSeries(activity.getSensorSeries());
+        try {
+            return objectMapper.writeValueAsBytes(dto);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
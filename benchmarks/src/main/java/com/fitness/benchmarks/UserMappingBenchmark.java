@@ -0,0 +1,96 @@
+package com.fitness.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.UserResponse;
+import com.fitness.userservice.models.User;
+import com.fitness.userservice.repository.UserRepository;
+import com.fitness.userservice.services.UserService;
+
+/**
+ * user-service's lookups with the repository answered from memory, so only
+ * the service's own work is measured: ID parsing and building
+ * {@link UserResponse}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private static final int USERS = 100;
+
+    private final UserService userService = new UserService();
+    private final List<User> users = new ArrayList<>();
+    private RegisterRequest existingUser;
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setId(UUID.randomUUID());
+            user.setKeycloakId(UUID.randomUUID().toString());
+            user.setEmail("user" + i + "@example.com");
+            user.setPassword("secret-password");
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            user.setCreatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+            user.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 9, 0));
+            users.add(user);
+        }
+        User first = users.get(0);
+        userId = first.getId().toString();
+        existingUser = new RegisterRequest();
+        existingUser.setEmail(first.getEmail());
+        existingUser.setKeycloakId(first.getKeycloakId());
+
+        UserRepository repository = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] { UserRepository.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.of(first);
+                    case "existsByEmail" -> true;
+                    case "findByEmail" -> first;
+                    case "findAll" -> users;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        var field = ReflectionUtils.findField(UserService.class, "repository");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, userService, repository);
+    }
+
+    @Benchmark
+    public UserResponse getUserProfile() {
+        return userService.getUserProfile(userId);
+    }
+
+    @Benchmark
+    public UserResponse registerExistingUser() {
+        return userService.register(existingUser);
+    }
+
+    @Benchmark
+    public List<UserResponse> getUsers() {
+        return userService.getUsers();
+    }
+}
@@ -32,3 +32,7 @@ export const addActivity = (activity) => {
 export const getActivityDetails = (id) => {
   return api.get(`/recommendations/activity/${id}`);
 };
+
+export const getDashboard = () => {
+  return api.get("/dashboard");
+};
@@ -1,16 +1,22 @@
 package com.fitness.gateway;
 
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 
+import com.fitness.gateway.metrics.GatewayLatencyMetrics;
+import com.fitness.gateway.user.PendingRegistrationQueue;
 import com.fitness.gateway.user.RegisterRequest;
+import com.fitness.gateway.user.UserExistenceCache;
 import com.fitness.gateway.user.UserService;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
@@ -21,65 +27,102 @@ import reactor.core.publisher.Mono;
 public class KeycloakUserSyncFilter implements WebFilter {
 
     private final UserService userService;
+    private final UserExistenceCache userExistenceCache;
+    private final PendingRegistrationQueue pendingRegistrations;
+    private final GatewayLatencyMetrics latencyMetrics;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // The resource server has already verified and decoded the token, reuse its principal
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(authentication -> ((JwtAuthenticationToken) authentication).getToken())
+                .map(jwt -> syncUser(exchange, chain, jwt))
+                // If there is no authenticated user, just continue the filter chain
+                .defaultIfEmpty(Mono.defer(() -> chain.filter(exchange)))
+                .flatMap(next -> next);
+    }
+
+    private Mono<Void> syncUser(ServerWebExchange exchange, WebFilterChain chain, Jwt jwt) {
+        // The token's user is the one that gets checked and registered, so every cache entry is keyed by it
+        String keycloakId = jwt.getSubject();
         String userId = exchange.getRequest().getHeaders().getFirst("X-User-Id");
-        String token = exchange.getRequest().getHeaders().getFirst("Authorization");
-        RegisterRequest registerRequest = getUserDetails(token);
+        if (userId == null) {
+            userId = keycloakId;
+        }
 
         if (userId == null) {
-            userId = registerRequest.getKeycloakId();
+            return chain.filter(exchange);
         }
 
-        if (userId != null && token != null) {
-            String finalUserid = userId;
-            return userService.validateUser(userId)
-                    .flatMap(exists -> {
-                        if (!exists) {
-                            if (registerRequest != null) {
-                                log.info("Registering new user: {}", registerRequest.getEmail());
-                                return userService.registerUser(registerRequest).then(Mono.empty());
-                            } else {
-                                log.warn("Could not extract user details from token");
-                                return Mono.empty();
-                            }
-                        } else {
-                            log.info("User already exists: {}");
-                            return Mono.just(true);
-                        }
-                    })
-                    .then(Mono.defer(() -> {
-                        // Always continue the filter chain
-                        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
-                                .header("X-User-Id", finalUserid)
-                                .build();
-
-                        return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                    }));
+        String finalUserid = userId;
+
+        // Known (or recently failed) users skip the user-service hop entirely
+        if (keycloakId == null || userExistenceCache.isKnown(keycloakId) || userExistenceCache.isMissing(keycloakId)) {
+            return continueWithUser(exchange, chain, finalUserid);
         }
 
-        // If no userId/token, just continue the filter chain
-        return chain.filter(exchange);
+        Timer.Sample sample = latencyMetrics.startUserSync();
+        return userService.validateUser(keycloakId)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        RegisterRequest registerRequest = getUserDetails(jwt);
+                        log.info("Registering new user: {}", registerRequest.getEmail());
+                        return userService.registerUser(registerRequest)
+                                .doOnSuccess(user -> userExistenceCache.markKnown(keycloakId))
+                                .thenReturn("registered")
+                                .onErrorResume(ex -> deferRegistration(registerRequest, ex));
+                    } else {
+                        log.info("User already exists: {}", keycloakId);
+                        userExistenceCache.markKnown(keycloakId);
+                        return Mono.just("validated");
+                    }
+                })
+                .onErrorResume(ex -> validationFallback(jwt, ex))
+                .doOnNext(outcome -> latencyMetrics.recordUserSync(sample, outcome))
+                .then(Mono.defer(() -> continueWithUser(exchange, chain, finalUserid)));
+    }
+
+    // user-service is down or slow: trust the last known answer instead of failing the request
+    private Mono<String> validationFallback(Jwt jwt, Throwable ex) {
+        if (userExistenceCache.wasKnown(jwt.getSubject())) {
+            log.warn("Could not validate user {}, using cached result: {}", jwt.getSubject(), ex.getMessage());
+            return Mono.just("fallback");
+        }
+        return deferRegistration(getUserDetails(jwt), ex);
     }
 
-    private RegisterRequest getUserDetails(String token) {
-        try {
-            String tokenWithoutBearer = token.replace("Bearer ", "");
-            SignedJWT signedJWT = SignedJWT.parse(tokenWithoutBearer);
-            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
-
-            RegisterRequest registerRequest = new RegisterRequest();
-            registerRequest.setEmail(claims.getStringClaim("email"));
-            registerRequest.setKeycloakId(claims.getStringClaim("sub"));
-            registerRequest.setFirstName(claims.getStringClaim("given_name"));
-            registerRequest.setLastName(claims.getStringClaim("family_name"));
-            registerRequest.setPassword("dummypassword123");
-
-            return registerRequest;
-        } catch (Exception e) {
-            log.error("Failed to parse token: {}", e.getMessage(), e);
-            return null;
+    private Mono<String> deferRegistration(RegisterRequest registerRequest, Throwable ex) {
+        String userId = registerRequest.getKeycloakId();
+        userExistenceCache.markMissing(userId);
+        if (UserService.isUnavailableError(ex)) {
+            log.warn("user-service unavailable, queueing registration for {}: {}", userId, ex.getMessage());
+            pendingRegistrations.enqueue(registerRequest);
+            return Mono.just("queued");
         }
+        log.error("Registration for {} was rejected: {}", userId, ex.getMessage());
+        return Mono.just("rejected");
+    }
+
+    private Mono<Void> continueWithUser(ServerWebExchange exchange, WebFilterChain chain, String userId) {
+        // Always continue the filter chain
+        ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
+                .header("X-User-Id", userId)
+                .build();
+
+        return chain.filter(exchange.mutate().request(mutatedRequest).build());
+    }
+
+    // Only called when the user actually has to be registered
+    public static RegisterRequest getUserDetails(Jwt jwt) {
+        RegisterRequest registerRequest = new RegisterRequest();
+        registerRequest.setEmail(jwt.getClaimAsString("email"));
+        registerRequest.setKeycloakId(jwt.getSubject());
+        registerRequest.setFirstName(jwt.getClaimAsString("given_name"));
+        registerRequest.setLastName(jwt.getClaimAsString("family_name"));
+        registerRequest.setPassword("dummypassword123");
+
+        return registerRequest;
     }
 }
@@ -19,7 +19,8 @@ public class SecurityConfig {
         public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
                 return http.csrf(csrf -> csrf.disable()).authorizeExchange(
                                 exchange -> exchange
-                                                .pathMatchers("/actuator/*").permitAll()
+                                                // Metrics and load balancer stats need a token like everything else
+                                                .pathMatchers("/actuator/health/**", "/actuator/info").permitAll()
                                                 .anyExchange().authenticated())
                                 .oauth2ResourceServer(
                                                 oauth2 -> oauth2.jwt(Customizer.withDefaults()))
@@ -31,7 +32,8 @@ public class SecurityConfig {
                 CorsConfiguration config = new CorsConfiguration();
                 config.setAllowedOrigins(List.of("http://localhost:5173"));
                 config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-                config.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-User-ID"));
+                config.setAllowedHeaders(List.of("Authorization", "Content-Type", "X-User-ID", "Idempotency-Key"));
+                config.setExposedHeaders(List.of("X-Next-Page-Token"));
                 config.setAllowCredentials(true);
 
                 UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
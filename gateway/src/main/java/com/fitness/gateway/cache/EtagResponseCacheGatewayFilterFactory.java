@@ -0,0 +1,250 @@
+package com.fitness.gateway.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Caches successful GET responses of a route in the gateway and serves them
+ * with a strong ETag, answering {@code If-None-Match} with 304. Identical
+ * GETs that arrive while the first one is still being proxied wait for its
+ * result instead of going to the backend themselves.
+ *
+ * The cache is bounded by the total size of the bodies it holds, and
+ * bodies over a size limit are passed through without being cached. A hit
+ * replays the headers the backend sent with the body, such as
+ * {@code Cache-Control}, so it looks the same as a miss.
+ *
+ * <pre>
+ * - name: EtagResponseCache
+ *   args:
+ *     time-to-live: 30s
+ * </pre>
+ */
+@Component
+@Slf4j
+public class EtagResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<EtagResponseCacheGatewayFilterFactory.Config> {
+
+    // Describe the connection or the exchange rather than the body, so they are not replayed
+    private static final Set<String> UNCACHED_HEADERS = Set.of("content-length", "transfer-encoding", "connection",
+            "keep-alive", "date", "etag");
+
+    private final Cache<String, CachedResponse> responses;
+    private final long maxBodyBytes;
+    private final ConcurrentMap<String, Mono<Optional<CachedResponse>>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter collapsed;
+    private final Counter notModified;
+
+    public EtagResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry,
+            @Value("${gateway.response-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${gateway.response-cache.max-body-size:1MB}") DataSize maxBodySize) {
+        super(Config.class);
+        this.maxBodyBytes = maxBodySize.toBytes();
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse response) -> response.body().length)
+                .expireAfter(Expiry.<String, CachedResponse>creating((key, response) -> response.timeToLive()))
+                .recordStats()
+                .build();
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.collapsed = requestCounter(meterRegistry, "collapsed");
+        this.notModified = Counter.builder("gateway.response.cache.not.modified")
+                .description("Conditional requests answered with 304 Not Modified")
+                .register(meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "gateway.response.cache");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Has to run before NettyWriteResponseFilter so the decorated response is the one written to
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            String query = request.getURI().getRawQuery();
+            String key = query == null ? request.getURI().getRawPath() : request.getURI().getRawPath() + "?" + query;
+            CachedResponse cached = responses.getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                return writeCached(exchange, cached);
+            }
+
+            Sinks.One<Optional<CachedResponse>> result = Sinks.one();
+            Mono<Optional<CachedResponse>> shared = result.asMono();
+            Mono<Optional<CachedResponse>> existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                collapsed.increment();
+                // If the first request did not produce a cacheable response, go to the backend ourselves
+                return existing.flatMap(response -> response.isPresent()
+                        ? writeCached(exchange, response.get())
+                        : chain.filter(exchange));
+            }
+
+            misses.increment();
+            ServerHttpResponse decorated = new CapturingResponse(exchange, key, config.getTimeToLive(), result);
+            return chain.filter(exchange.mutate().response(decorated).build())
+                    .doFinally(signal -> {
+                        result.tryEmitValue(Optional.empty());
+                        inFlight.remove(key, shared);
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setETag(cached.etag());
+
+        if (matchesIfNoneMatch(exchange.getRequest(), cached.etag())) {
+            notModified.increment();
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        response.setStatusCode(HttpStatus.OK);
+        // Headers this request's own filters already set are newer than the stored ones
+        cached.headers().forEach((name, values) -> response.getHeaders().putIfAbsent(name, values));
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static boolean matchesIfNoneMatch(ServerHttpRequest request, String etag) {
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        return ifNoneMatch.contains(etag) || ifNoneMatch.contains("*");
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.response.cache.requests")
+                .description("GET requests seen by the response cache, by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers a successful backend response, stores it in the cache and hands
+     * it to any collapsed requests before writing it to the client.
+     */
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String key;
+        private final Duration timeToLive;
+        private final Sinks.One<Optional<CachedResponse>> result;
+
+        CapturingResponse(ServerWebExchange exchange, String key, Duration timeToLive,
+                Sinks.One<Optional<CachedResponse>> result) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+            this.timeToLive = timeToLive;
+            this.result = result;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (getStatusCode() != HttpStatus.OK || getHeaders().containsKey(HttpHeaders.SET_COOKIE)
+                    || getHeaders().getContentLength() > maxBodyBytes) {
+                return super.writeWith(body);
+            }
+
+            return DataBufferUtils.join(Flux.from(body)).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                if (bytes.length > maxBodyBytes) {
+                    // Chunked, so its size was only known now; collapsed requests go to the backend themselves
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                }
+
+                CachedResponse cached = new CachedResponse(bytes, replayedHeaders(getHeaders()), etag(bytes),
+                        timeToLive);
+                responses.put(key, cached);
+                result.tryEmitValue(Optional.of(cached));
+
+                getHeaders().setETag(cached.etag());
+                if (matchesIfNoneMatch(exchange.getRequest(), cached.etag())) {
+                    notModified.increment();
+                    getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                    getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    return getDelegate().setComplete();
+                }
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+
+    private static HttpHeaders replayedHeaders(HttpHeaders headers) {
+        HttpHeaders replayed = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!UNCACHED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                replayed.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(replayed);
+    }
+
+    private record CachedResponse(byte[] body, HttpHeaders headers, String etag, Duration timeToLive) {
+    }
+
+    @Data
+    public static class Config {
+
+        private Duration timeToLive = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,23 @@
+package com.fitness.gateway.dashboard;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    @GetMapping
+    public Mono<ResponseEntity<DashboardResponse>> getDashboard(@RequestHeader("X-User-Id") String userId) {
+        return dashboardService.getDashboard(userId).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,23 @@
+package com.fitness.gateway.dashboard;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fitness.gateway.user.UserResponse;
+
+import lombok.Data;
+
+@Data
+public class DashboardResponse {
+
+    private UserResponse profile;
+    private JsonNode activities;
+    // Set when the user has more activities than the dashboard shows; pass it as pageToken to /api/activities
+    private String activitiesNextPageToken;
+    private JsonNode recommendations;
+
+    // Legs that failed, keyed by leg name, with "timeout", "unavailable" or the HTTP status the backend
+    // answered with; their fields above are left null
+    private Map<String, String> errors;
+
+}
@@ -0,0 +1,114 @@
+package com.fitness.gateway.dashboard;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fitness.gateway.user.UserResponse;
+import com.fitness.gateway.user.UserService;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the dashboard by calling user-service, activity-service and
+ * ai-service in parallel. Each leg has its own timeout; a leg that fails is
+ * reported in {@link DashboardResponse#getErrors()} instead of failing the
+ * whole response.
+ *
+ * Only the latest page of activities is included; the token activity-service
+ * returns for the next one is passed on, so the client can page through the
+ * rest from {@code /api/activities}.
+ */
+@Service
+@Slf4j
+public class DashboardService {
+
+    private static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+    private final UserService userService;
+    private final WebClient activityServiceWebClient;
+    private final WebClient aiServiceWebClient;
+
+    private final Duration profileTimeout;
+    private final Duration activitiesTimeout;
+    private final Duration recommendationsTimeout;
+    private final int activitiesPageSize;
+
+    public DashboardService(UserService userService, WebClient activityServiceWebClient,
+            WebClient aiServiceWebClient,
+            @Value("${gateway.dashboard.timeout.profile:1s}") Duration profileTimeout,
+            @Value("${gateway.dashboard.timeout.activities:2s}") Duration activitiesTimeout,
+            @Value("${gateway.dashboard.timeout.recommendations:2s}") Duration recommendationsTimeout,
+            @Value("${gateway.dashboard.activities-page-size:20}") int activitiesPageSize) {
+        this.userService = userService;
+        this.activityServiceWebClient = activityServiceWebClient;
+        this.aiServiceWebClient = aiServiceWebClient;
+        this.profileTimeout = profileTimeout;
+        this.activitiesTimeout = activitiesTimeout;
+        this.recommendationsTimeout = recommendationsTimeout;
+        this.activitiesPageSize = activitiesPageSize;
+    }
+
+    public Mono<DashboardResponse> getDashboard(String userId) {
+        Map<String, String> errors = new ConcurrentHashMap<>();
+
+        Mono<Optional<UserResponse>> profile = leg("profile",
+                userService.getUserProfile(userId), profileTimeout, errors);
+
+        Mono<Optional<ResponseEntity<JsonNode>>> activities = leg("activities", activityServiceWebClient.get()
+                .uri(uri -> uri.path("/api/activities").queryParam("size", activitiesPageSize).build())
+                .header("X-User-Id", userId)
+                .retrieve()
+                .toEntity(JsonNode.class), activitiesTimeout, errors);
+
+        Mono<Optional<JsonNode>> recommendations = leg("recommendations", aiServiceWebClient.get()
+                .uri("/api/recommendations/user/{userId}", userId)
+                .retrieve()
+                .bodyToMono(JsonNode.class), recommendationsTimeout, errors);
+
+        return Mono.zip(profile, activities, recommendations)
+                .map(results -> {
+                    DashboardResponse response = new DashboardResponse();
+                    response.setProfile(results.getT1().orElse(null));
+                    results.getT2().ifPresent(page -> {
+                        response.setActivities(page.getBody());
+                        response.setActivitiesNextPageToken(page.getHeaders().getFirst(NEXT_PAGE_TOKEN_HEADER));
+                    });
+                    response.setRecommendations(results.getT3().orElse(null));
+                    response.setErrors(errors.isEmpty() ? null : Map.copyOf(errors));
+                    return response;
+                });
+    }
+
+    private <T> Mono<Optional<T>> leg(String name, Mono<T> call, Duration timeout, Map<String, String> errors) {
+        return call.map(Optional::of)
+                .timeout(timeout)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(ex -> {
+                    log.warn("Dashboard leg {} failed: {}", name, ex.toString());
+                    errors.put(name, reason(ex));
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    // Only a fixed reason goes to the client; exception messages can name internal hosts and URLs
+    private static String reason(Throwable ex) {
+        if (ex instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (ex instanceof WebClientResponseException response) {
+            return Integer.toString(response.getStatusCode().value());
+        }
+        return "unavailable";
+    }
+}
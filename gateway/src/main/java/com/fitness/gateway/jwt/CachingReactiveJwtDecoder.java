@@ -0,0 +1,98 @@
+package com.fitness.gateway.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Remembers tokens that already passed signature verification until they
+ * expire, so clients reusing the same access token only pay for RSA
+ * verification once. Tokens are keyed by a SHA-256 digest rather than the
+ * raw token value.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    private final ReactiveJwtDecoder delegate;
+    private final Cache<String, Jwt> verifiedTokens;
+    private final Timer cachedTimer;
+    private final Timer verifiedTimer;
+    private final Timer failedTimer;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry, long maxSize,
+            Duration maxTtl) {
+        this.delegate = delegate;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, Jwt>creating((digest, jwt) -> timeToLive(jwt, maxTtl)))
+                .recordStats()
+                .build();
+        this.cachedTimer = decodeTimer(meterRegistry, "cache");
+        this.verifiedTimer = decodeTimer(meterRegistry, "verified");
+        this.failedTimer = decodeTimer(meterRegistry, "failed");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "gateway.jwt.tokens");
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            String digest = digest(token);
+
+            Jwt cached = verifiedTokens.getIfPresent(digest);
+            if (cached != null && cached.getExpiresAt().isAfter(Instant.now())) {
+                cachedTimer.record(Duration.ofNanos(System.nanoTime() - start));
+                return Mono.just(cached);
+            }
+
+            return delegate.decode(token)
+                    .doOnNext(jwt -> {
+                        if (jwt.getExpiresAt() != null) {
+                            verifiedTokens.put(digest, jwt);
+                        }
+                        verifiedTimer.record(Duration.ofNanos(System.nanoTime() - start));
+                    })
+                    .doOnError(ex -> failedTimer.record(Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    private static Duration timeToLive(Jwt jwt, Duration maxTtl) {
+        Duration untilExpiry = Duration.between(Instant.now(), jwt.getExpiresAt());
+        if (untilExpiry.isNegative()) {
+            return Duration.ZERO;
+        }
+        return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Timer decodeTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("gateway.jwt.decode")
+                .description("Time spent turning a bearer token into a verified Jwt")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
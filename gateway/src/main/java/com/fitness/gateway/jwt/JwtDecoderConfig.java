@@ -0,0 +1,48 @@
+package com.fitness.gateway.jwt;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class JwtDecoderConfig {
+
+    @Value("${spring.security.oauth2.resource-server.jwt.jwk-set-uri}")
+    private String jwkSetUri;
+
+    // JWK set refresh properties
+    @Value("${gateway.jwt.jwks.refresh-interval:5m}")
+    private Duration refreshInterval;
+    @Value("${gateway.jwt.jwks.min-refresh-interval:30s}")
+    private Duration minRefreshInterval;
+    @Value("${gateway.jwt.jwks.fetch-timeout:2s}")
+    private Duration fetchTimeout;
+    @Value("${gateway.jwt.jwks.stale-while-revalidate:true}")
+    private boolean staleWhileRevalidate;
+
+    // Verified token cache properties
+    @Value("${gateway.jwt.cache.max-size:50000}")
+    private long cacheMaxSize;
+    @Value("${gateway.jwt.cache.max-ttl:10m}")
+    private Duration cacheMaxTtl;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public RefreshingJwkSource jwkSource(MeterRegistry meterRegistry) {
+        // Keycloak is not registered in Eureka, so this client must not be load balanced
+        return new RefreshingJwkSource(WebClient.create(), jwkSetUri, refreshInterval, minRefreshInterval,
+                fetchTimeout, staleWhileRevalidate, meterRegistry);
+    }
+
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder(RefreshingJwkSource jwkSource, MeterRegistry meterRegistry) {
+        ReactiveJwtDecoder verifier = NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build();
+        return new CachingReactiveJwtDecoder(verifier, meterRegistry, cacheMaxSize, cacheMaxTtl);
+    }
+}
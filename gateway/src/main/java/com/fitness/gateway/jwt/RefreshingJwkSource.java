@@ -0,0 +1,181 @@
+package com.fitness.gateway.jwt;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Local copy of the Keycloak JWK set used to verify access tokens.
+ *
+ * The set is refreshed in the background every {@code refreshInterval}, so
+ * the request path normally never waits on Keycloak. In stale-while-revalidate
+ * mode an outdated set keeps being served while a refresh runs; the request
+ * path only waits when a token is signed with a key ID we have never seen
+ * (key rotation), and even then at most once per {@code minRefreshInterval}.
+ */
+@Slf4j
+public class RefreshingJwkSource {
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final Duration minRefreshInterval;
+    private final Duration fetchTimeout;
+    private final boolean staleWhileRevalidate;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReference<CachedJwkSet> current = new AtomicReference<>();
+    private final AtomicReference<Mono<JWKSet>> inFlightRefresh = new AtomicReference<>();
+    private volatile Instant lastFetchAttempt = Instant.EPOCH;
+    private Disposable scheduledRefresh;
+
+    public RefreshingJwkSource(WebClient webClient, String jwkSetUri, Duration refreshInterval,
+            Duration minRefreshInterval, Duration fetchTimeout, boolean staleWhileRevalidate,
+            MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshInterval = minRefreshInterval;
+        this.fetchTimeout = fetchTimeout;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void start() {
+        scheduledRefresh = Flux.interval(Duration.ZERO, refreshInterval)
+                .concatMap(tick -> refresh().onErrorResume(ex -> Mono.empty()))
+                .subscribe();
+    }
+
+    public void stop() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.dispose();
+        }
+    }
+
+    /**
+     * Key lookup used by the Nimbus decoder for each token that still has to
+     * be verified.
+     */
+    public Flux<JWK> select(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        CachedJwkSet cached = current.get();
+
+        if (cached != null) {
+            List<JWK> keys = selector.select(cached.jwkSet());
+            if (!keys.isEmpty()) {
+                if (!isStale(cached)) {
+                    return Flux.fromIterable(keys);
+                }
+                if (staleWhileRevalidate) {
+                    if (!recentlyFetched()) {
+                        refresh().subscribe(jwkSet -> { }, ex -> { });
+                    }
+                    return Flux.fromIterable(keys);
+                }
+                return refreshAndSelect(selector);
+            }
+        }
+
+        if (inFlightRefresh.get() == null && recentlyFetched()) {
+            // Keycloak was asked very recently, asking again for an unknown key would not help
+            return Flux.empty();
+        }
+
+        // Nothing loaded yet or an unknown key ID (rotation): wait for Keycloak
+        return refreshAndSelect(selector);
+    }
+
+    private Flux<JWK> refreshAndSelect(JWKSelector selector) {
+        return refresh().map(selector::select).flatMapMany(Flux::fromIterable);
+    }
+
+    private boolean isStale(CachedJwkSet cached) {
+        return cached.fetchedAt().plus(refreshInterval).isBefore(Instant.now());
+    }
+
+    private boolean recentlyFetched() {
+        return Instant.now().isBefore(lastFetchAttempt.plus(minRefreshInterval));
+    }
+
+    /**
+     * Fetches the JWK set, sharing a single request between concurrent
+     * callers. On failure the previous set (if any) is kept and returned.
+     */
+    public Mono<JWKSet> refresh() {
+        Mono<JWKSet> existing = inFlightRefresh.get();
+        if (existing != null) {
+            return existing;
+        }
+
+        Mono<JWKSet> created = fetch()
+                .doFinally(signal -> inFlightRefresh.set(null))
+                .cache();
+
+        if (inFlightRefresh.compareAndSet(null, created)) {
+            return created;
+        }
+        Mono<JWKSet> raced = inFlightRefresh.get();
+        return raced != null ? raced : created;
+    }
+
+    private Mono<JWKSet> fetch() {
+        return Mono.defer(() -> {
+            lastFetchAttempt = Instant.now();
+            Timer.Sample sample = Timer.start(meterRegistry);
+
+            return webClient.get()
+                    .uri(jwkSetUri)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .timeout(fetchTimeout)
+                    .map(this::parse)
+                    .doOnNext(jwkSet -> {
+                        current.set(new CachedJwkSet(jwkSet, Instant.now()));
+                        sample.stop(refreshTimer("success"));
+                        log.debug("Refreshed JWK set from {} ({} keys)", jwkSetUri, jwkSet.getKeys().size());
+                    })
+                    .onErrorResume(ex -> {
+                        sample.stop(refreshTimer("failure"));
+                        log.warn("Failed to refresh JWK set from {}: {}", jwkSetUri, ex.getMessage());
+                        CachedJwkSet cached = current.get();
+                        return cached != null ? Mono.just(cached.jwkSet()) : Mono.error(ex);
+                    });
+        });
+    }
+
+    private JWKSet parse(String body) {
+        try {
+            return JWKSet.parse(body);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Invalid JWK set: " + e.getMessage(), e);
+        }
+    }
+
+    private Timer refreshTimer(String result) {
+        return Timer.builder("gateway.jwt.jwks.refresh")
+                .description("Time spent fetching the JWK set from the identity provider")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedJwkSet(JWKSet jwkSet, Instant fetchedAt) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.fitness.gateway.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Latency histograms for the gateway. Every request is recorded under
+ * {@code gateway.request.latency} tagged by route, status class and phase:
+ * {@code pre-route} covers token verification and the user-sync filter,
+ * {@code route} covers the route filters and the proxied backend call, and
+ * {@code total} is the whole exchange. Requests the client gave up on are
+ * tagged {@code cancelled} instead of a status class. The user-service hop of
+ * the sync filter gets its own {@code gateway.user.sync} timer. Timer counts
+ * double as throughput.
+ */
+@Component
+public class GatewayLatencyMetrics {
+
+    public static final String REQUEST_LATENCY = "gateway.request.latency";
+    public static final String USER_SYNC = "gateway.user.sync";
+
+    public static final String PHASE_PRE_ROUTE = "pre-route";
+    public static final String PHASE_ROUTE = "route";
+    public static final String PHASE_TOTAL = "total";
+
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+    private final double[] percentiles;
+    private final Duration[] slos;
+    private final Duration maximumExpected;
+
+    // Looked up on every request, so build and register each timer once
+    private final Map<RequestTimerKey, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> userSyncTimers = new ConcurrentHashMap<>();
+
+    private record RequestTimerKey(String route, String status, String phase) {
+    }
+
+    public GatewayLatencyMetrics(MeterRegistry meterRegistry,
+            @Value("${gateway.metrics.latency.percentiles:0.5,0.9,0.95,0.99}") double[] percentiles,
+            @Value("${gateway.metrics.latency.slo:25ms,50ms,100ms,250ms,500ms,1s,2s}") Duration[] slos,
+            @Value("${gateway.metrics.latency.maximum-expected:30s}") Duration maximumExpected) {
+        this.meterRegistry = meterRegistry;
+        this.percentiles = percentiles;
+        this.slos = Arrays.copyOf(slos, slos.length);
+        Arrays.sort(this.slos);
+        this.maximumExpected = maximumExpected;
+    }
+
+    public void recordRequest(String route, String status, String phase, long nanos) {
+        requestTimers.computeIfAbsent(new RequestTimerKey(route, status, phase),
+                key -> histogram(REQUEST_LATENCY, "Gateway request latency by route, status class and phase")
+                        .tag("route", key.route())
+                        .tag("status", key.status())
+                        .tag("phase", key.phase())
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer.Sample startUserSync() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordUserSync(Timer.Sample sample, String outcome) {
+        sample.stop(userSyncTimers.computeIfAbsent(outcome,
+                key -> histogram(USER_SYNC, "Time spent checking and registering the caller in user-service")
+                        .tag("outcome", key)
+                        .register(meterRegistry)));
+    }
+
+    /**
+     * Status class of an exchange that ended with the given signal, or
+     * {@link #STATUS_CANCELLED} when the client went away before it finished.
+     */
+    public static String statusClass(HttpStatusCode status, SignalType signal, Throwable error) {
+        return signal == SignalType.CANCEL ? STATUS_CANCELLED : statusClass(status, error);
+    }
+
+    /**
+     * Status class ({@code 2xx}, {@code 4xx}, ...) of a finished exchange.
+     * Errors escaping the filter chain have no status yet; they are mapped the
+     * same way the error handler will map them.
+     */
+    public static String statusClass(HttpStatusCode status, Throwable error) {
+        if (status == null && error instanceof ResponseStatusException responseStatusException) {
+            status = responseStatusException.getStatusCode();
+        }
+        if (status == null) {
+            return error != null ? "5xx" : "unknown";
+        }
+        return (status.value() / 100) + "xx";
+    }
+
+    private Timer.Builder histogram(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(percentiles)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(slos)
+                .maximumExpectedValue(maximumExpected);
+    }
+}
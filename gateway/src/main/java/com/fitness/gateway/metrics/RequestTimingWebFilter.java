@@ -0,0 +1,64 @@
+package com.fitness.gateway.metrics;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Runs ahead of every other web filter, including security, and records the
+ * {@code total} and {@code pre-route} phases once the exchange completes.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestTimingWebFilter implements WebFilter, Ordered {
+
+    static final String ROUTED_ATTR = RequestTimingWebFilter.class.getName() + ".routed";
+
+    // Requests not handled by a route, e.g. /api/dashboard or actuator
+    static final String NO_ROUTE = "none";
+
+    private final GatewayLatencyMetrics latencyMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+
+        // doFinally also sees clients that hang up, which never complete or fail the chain
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        return chain.filter(exchange)
+                .doOnError(error::set)
+                .doFinally(signal -> record(exchange, start, signal, error.get()));
+    }
+
+    private void record(ServerWebExchange exchange, long start, SignalType signal, Throwable error) {
+        long end = System.nanoTime();
+        String route = routeId(exchange);
+        String status = GatewayLatencyMetrics.statusClass(exchange.getResponse().getStatusCode(), signal, error);
+
+        latencyMetrics.recordRequest(route, status, GatewayLatencyMetrics.PHASE_TOTAL, end - start);
+        Long routed = exchange.getAttribute(ROUTED_ATTR);
+        if (routed != null) {
+            latencyMetrics.recordRequest(route, status, GatewayLatencyMetrics.PHASE_PRE_ROUTE, routed - start);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : NO_ROUTE;
+    }
+}
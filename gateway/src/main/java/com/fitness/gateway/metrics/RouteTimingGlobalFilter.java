@@ -0,0 +1,48 @@
+package com.fitness.gateway.metrics;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * First global filter of every routed request. Marks where the
+ * {@code pre-route} phase ends and records the {@code route} phase: route
+ * filters such as rate limiting and response caching plus the backend call.
+ */
+@Component
+@RequiredArgsConstructor
+public class RouteTimingGlobalFilter implements GlobalFilter, Ordered {
+
+    private final GatewayLatencyMetrics latencyMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long routed = System.nanoTime();
+        exchange.getAttributes().put(RequestTimingWebFilter.ROUTED_ATTR, routed);
+
+        // doFinally also sees clients that hang up, which never complete or fail the chain
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        return chain.filter(exchange)
+                .doOnError(error::set)
+                .doFinally(signal -> record(exchange, routed, signal, error.get()));
+    }
+
+    private void record(ServerWebExchange exchange, long routed, SignalType signal, Throwable error) {
+        String status = GatewayLatencyMetrics.statusClass(exchange.getResponse().getStatusCode(), signal, error);
+        latencyMetrics.recordRequest(RequestTimingWebFilter.routeId(exchange), status,
+                GatewayLatencyMetrics.PHASE_ROUTE, System.nanoTime() - routed);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
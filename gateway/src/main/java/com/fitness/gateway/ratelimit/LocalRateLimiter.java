@@ -0,0 +1,152 @@
+package com.fitness.gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory token bucket rate limiter for the {@code RequestRateLimiter}
+ * route filter. Works like the Redis based limiter but keeps its buckets in
+ * the gateway process, so it needs no external store. With several gateway
+ * instances each one enforces the limit on its own.
+ *
+ * Per-route limits are set through the filter args in gateway.yml:
+ *
+ * <pre>
+ * - name: RequestRateLimiter
+ *   args:
+ *     local-rate-limiter.replenish-rate: 10
+ *     local-rate-limiter.burst-capacity: 20
+ * </pre>
+ */
+@Component
+@Slf4j
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Config defaultConfig;
+    private final Cache<String, TokenBucket> buckets;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final MeterRegistry meterRegistry;
+
+    public LocalRateLimiter(ConfigurationService configurationService, MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limit.default-replenish-rate:10}") int defaultReplenishRate,
+            @Value("${gateway.rate-limit.default-burst-capacity:20}") int defaultBurstCapacity,
+            @Value("${gateway.rate-limit.max-buckets:100000}") long maxBuckets,
+            @Value("${gateway.rate-limit.idle-bucket-ttl:10m}") Duration idleBucketTtl) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.meterRegistry = meterRegistry;
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(defaultReplenishRate);
+        this.defaultConfig.setBurstCapacity(defaultBurstCapacity);
+        // A bucket that has been idle long enough is full again, so dropping it changes nothing
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleBucketTtl)
+                .build();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        String key = routeId + ":" + id;
+
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(config.getBurstCapacity(), System.nanoTime()));
+        long remaining;
+        long retryAfterSeconds;
+
+        synchronized (locks[(key.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+            bucket.refill(config, System.nanoTime());
+            if (bucket.tokens >= config.getRequestedTokens()) {
+                bucket.tokens -= config.getRequestedTokens();
+                retryAfterSeconds = 0;
+            } else {
+                double missing = config.getRequestedTokens() - bucket.tokens;
+                retryAfterSeconds = (long) Math.ceil(missing / config.getReplenishRate());
+            }
+            remaining = (long) bucket.tokens;
+        }
+
+        boolean allowed = retryAfterSeconds == 0;
+        requestCounter(routeId, allowed ? "admitted" : "rejected").increment();
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf(remaining));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        if (!allowed) {
+            log.debug("Rate limit exceeded for {} on route {}", id, routeId);
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        return Mono.just(new Response(allowed, headers));
+    }
+
+    private Counter requestCounter(String routeId, String result) {
+        return Counter.builder("gateway.ratelimit.requests")
+                .description("Requests admitted or rejected by the gateway rate limiter")
+                .tag("route", routeId)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // Only touched while holding the bucket's lock stripe
+    private static final class TokenBucket {
+
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(double tokens, long lastRefillNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = lastRefillNanos;
+        }
+
+        private void refill(Config config, long now) {
+            double refill = (now - lastRefillNanos) / 1_000_000_000.0 * config.getReplenishRate();
+            tokens = Math.min(config.getBurstCapacity(), tokens + refill);
+            lastRefillNanos = now;
+        }
+    }
+
+    @Data
+    @Validated
+    public static class Config {
+
+        // Tokens added to each user's bucket per second
+        @Min(1)
+        private int replenishRate;
+
+        // Maximum number of tokens a bucket can hold, i.e. the allowed burst
+        @Min(1)
+        private int burstCapacity;
+
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.fitness.gateway.ratelimit;
+
+import java.security.Principal;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Rate limits per user. The authenticated subject is preferred so a client
+ * cannot get a fresh bucket by sending a different {@code X-User-Id}; the
+ * header is only used when there is no principal.
+ */
+@Component
+public class UserKeyResolver implements KeyResolver {
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .switchIfEmpty(Mono.justOrEmpty(exchange.getRequest().getHeaders().getFirst("X-User-Id")));
+    }
+}
@@ -0,0 +1,107 @@
+package com.fitness.gateway.user;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Registrations that could not reach user-service are parked here and
+ * retried in the background, so a first login during an outage still goes
+ * through and the user shows up in user-service once it recovers. Retries
+ * are skipped while the user-service circuit is open.
+ */
+@Component
+@Slf4j
+public class PendingRegistrationQueue {
+
+    private final UserService userService;
+    private final UserExistenceCache userExistenceCache;
+    private final Duration retryInterval;
+    private final int maxSize;
+
+    // Keyed by keycloak ID, so repeated requests from the same user queue one registration
+    private final ConcurrentMap<String, RegisterRequest> pending = new ConcurrentHashMap<>();
+
+    private Disposable retries;
+
+    public PendingRegistrationQueue(UserService userService, UserExistenceCache userExistenceCache,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.pending-registrations.retry-interval:15s}") Duration retryInterval,
+            @Value("${gateway.pending-registrations.max-size:10000}") int maxSize) {
+        this.userService = userService;
+        this.userExistenceCache = userExistenceCache;
+        this.retryInterval = retryInterval;
+        this.maxSize = maxSize;
+
+        Gauge.builder("gateway.user.registrations.pending", pending, ConcurrentMap::size)
+                .description("Registrations waiting for user-service to become available")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        retries = Flux.interval(retryInterval, retryInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (retries != null) {
+            retries.dispose();
+        }
+    }
+
+    public void enqueue(RegisterRequest registerRequest) {
+        String keycloakId = registerRequest.getKeycloakId();
+        if (keycloakId == null) {
+            return;
+        }
+        if (pending.size() >= maxSize && !pending.containsKey(keycloakId)) {
+            log.warn("Pending registration queue is full, dropping registration for {}", keycloakId);
+            return;
+        }
+        pending.put(keycloakId, registerRequest);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    Mono<Void> drain() {
+        if (pending.isEmpty() || userService.isUnavailable()) {
+            return Mono.empty();
+        }
+
+        return Flux.fromIterable(pending.values())
+                .concatMap(registerRequest -> userService.registerUser(registerRequest)
+                        .doOnSuccess(user -> {
+                            pending.remove(registerRequest.getKeycloakId());
+                            userExistenceCache.markKnown(registerRequest.getKeycloakId());
+                            log.info("Registered pending user {}", registerRequest.getKeycloakId());
+                        })
+                        .onErrorResume(ex -> {
+                            // A definitive rejection will not succeed on retry either
+                            if (!UserService.isUnavailableError(ex)) {
+                                pending.remove(registerRequest.getKeycloakId());
+                            }
+                            log.warn("Retrying registration for {} failed: {}", registerRequest.getKeycloakId(),
+                                    ex.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+}
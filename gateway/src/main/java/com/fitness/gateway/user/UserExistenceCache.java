@@ -0,0 +1,77 @@
+package com.fitness.gateway.user;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Remembers which keycloak IDs are already known to user-service so the
+ * gateway does not have to call {@code /api/users/{id}/validate} on every
+ * request. Users that could not be validated or registered are kept in a
+ * short-lived negative cache so a broken account does not hammer user-service
+ * either.
+ *
+ * Known users count as fresh for {@code ttl}, but are remembered for
+ * {@code fallback-ttl} so the last known result can still be used while
+ * user-service is unavailable.
+ */
+@Component
+public class UserExistenceCache {
+
+    private final Cache<String, Instant> knownUsers;
+    private final Cache<String, Boolean> missingUsers;
+    private final Duration ttl;
+
+    public UserExistenceCache(MeterRegistry meterRegistry,
+            @Value("${gateway.user-cache.max-size:100000}") long maxSize,
+            @Value("${gateway.user-cache.ttl:30m}") Duration ttl,
+            @Value("${gateway.user-cache.fallback-ttl:24h}") Duration fallbackTtl,
+            @Value("${gateway.user-cache.negative-max-size:10000}") long negativeMaxSize,
+            @Value("${gateway.user-cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.ttl = ttl;
+        this.knownUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(fallbackTtl)
+                .recordStats()
+                .build();
+        this.missingUsers = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, knownUsers, "gateway.users.known");
+        CaffeineCacheMetrics.monitor(meterRegistry, missingUsers, "gateway.users.missing");
+    }
+
+    public boolean isKnown(String keycloakId) {
+        Instant validatedAt = knownUsers.getIfPresent(keycloakId);
+        return validatedAt != null && validatedAt.plus(ttl).isAfter(Instant.now());
+    }
+
+    // Whether the user was known at some point, however long ago; only meant as a fallback
+    public boolean wasKnown(String keycloakId) {
+        return knownUsers.getIfPresent(keycloakId) != null;
+    }
+
+    public boolean isMissing(String keycloakId) {
+        return missingUsers.getIfPresent(keycloakId) != null;
+    }
+
+    public void markKnown(String keycloakId) {
+        knownUsers.put(keycloakId, Instant.now());
+        missingUsers.invalidate(keycloakId);
+    }
+
+    public void markMissing(String keycloakId) {
+        missingUsers.put(keycloakId, Boolean.TRUE);
+    }
+}
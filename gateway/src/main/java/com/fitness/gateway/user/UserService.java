@@ -1,22 +1,110 @@
 package com.fitness.gateway.user;
 
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class UserService {
 
+    public static final String RESILIENCE_INSTANCE = "user-service";
+
     private final WebClient userServiceWebClient;
 
+    // Every call to user-service goes through the same bulkhead and circuit breaker
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration validateTimeout;
+    private final Duration registerTimeout;
+    private final Duration profileTimeout;
+
+    // Calls currently in flight, keyed by keycloak ID, so concurrent callers share one round trip
+    private final ConcurrentMap<String, Mono<Boolean>> inFlightValidations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Mono<UserResponse>> inFlightRegistrations = new ConcurrentHashMap<>();
+
+    private final Counter validationsExecuted;
+    private final Counter validationsCoalesced;
+    private final Counter registrationsExecuted;
+    private final Counter registrationsCoalesced;
+
+    public UserService(WebClient userServiceWebClient, MeterRegistry meterRegistry,
+            CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+            @Value("${gateway.user-service.timeout.validate:500ms}") Duration validateTimeout,
+            @Value("${gateway.user-service.timeout.register:2s}") Duration registerTimeout,
+            @Value("${gateway.user-service.timeout.profile:1s}") Duration profileTimeout) {
+        this.userServiceWebClient = userServiceWebClient;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(RESILIENCE_INSTANCE);
+        this.validateTimeout = validateTimeout;
+        this.registerTimeout = registerTimeout;
+        this.profileTimeout = profileTimeout;
+        this.validationsExecuted = callCounter(meterRegistry, "validate", "executed");
+        this.validationsCoalesced = callCounter(meterRegistry, "validate", "coalesced");
+        this.registrationsExecuted = callCounter(meterRegistry, "register", "executed");
+        this.registrationsCoalesced = callCounter(meterRegistry, "register", "coalesced");
+    }
+
     public Mono<Boolean> validateUser(String userId) {
+        return Mono.defer(() -> singleFlight(inFlightValidations, userId,
+                () -> protect(doValidateUser(userId), validateTimeout), validationsExecuted, validationsCoalesced));
+    }
+
+    public Mono<UserResponse> registerUser(RegisterRequest registerRequest) {
+        String key = registerRequest.getKeycloakId() != null
+                ? registerRequest.getKeycloakId()
+                : registerRequest.getEmail();
+
+        return Mono.defer(() -> singleFlight(inFlightRegistrations, key,
+                () -> protect(doRegisterUser(registerRequest), registerTimeout),
+                registrationsExecuted, registrationsCoalesced));
+    }
+
+    // True while the circuit is open and calls would be rejected straight away
+    public boolean isUnavailable() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN
+                || circuitBreaker.getState() == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    /**
+     * Whether an error means user-service could not answer (circuit open,
+     * bulkhead full, timeout or 5xx) rather than a definitive answer.
+     */
+    public static boolean isUnavailableError(Throwable ex) {
+        return !(ex instanceof WebClientResponseException responseException)
+                || responseException.getStatusCode().is5xxServerError();
+    }
+
+    public Mono<UserResponse> getUserProfile(String userId) {
+        String url = "/api/users/" + userId;
+        log.debug("Fetching user profile from user-service: {}", url);
+
+        return protect(userServiceWebClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(UserResponse.class), profileTimeout);
+    }
+
+    private Mono<Boolean> doValidateUser(String userId) {
         String url = "/api/users/" + userId + "/validate";
         log.info("Calling user-service: {}", url);
 
@@ -38,7 +126,7 @@ public class UserService {
                 });
     }
 
-    public Mono<UserResponse> registerUser(RegisterRequest registerRequest) {
+    private Mono<UserResponse> doRegisterUser(RegisterRequest registerRequest) {
         String url = "/api/users/register";
         log.info("Registering user via user-service: {}", url);
 
@@ -52,4 +140,49 @@ public class UserService {
                     return Mono.error(ex);
                 });
     }
+
+    // Bulkhead innermost so rejected calls never reach the network, circuit breaker outermost
+    private <T> Mono<T> protect(Mono<T> call, Duration timeout) {
+        return call.transformDeferred(BulkheadOperator.of(bulkhead))
+                .timeout(timeout)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Returns the call already in flight for {@code key}, or starts a new one.
+     * The shared {@link Mono} is dropped from the registry as soon as it
+     * terminates, so results are never reused across separate bursts.
+     */
+    private <T> Mono<T> singleFlight(ConcurrentMap<String, Mono<T>> inFlight, String key, Supplier<Mono<T>> call,
+            Counter executed, Counter coalesced) {
+        Mono<T> existing = inFlight.get(key);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        // Only ever remove this call's own entry, never one a later call has put under the same key
+        AtomicReference<Mono<T>> self = new AtomicReference<>();
+        Mono<T> created = call.get()
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .cache();
+        self.set(created);
+
+        Mono<T> raced = inFlight.putIfAbsent(key, created);
+        if (raced != null) {
+            coalesced.increment();
+            return raced;
+        }
+
+        executed.increment();
+        return created;
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String operation, String result) {
+        return Counter.builder("gateway.user.service.calls")
+                .description("Calls from the gateway to user-service, split into executed and coalesced")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
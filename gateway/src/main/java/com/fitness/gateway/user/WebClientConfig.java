@@ -16,7 +16,19 @@ public class WebClientConfig {
 
     @Bean
     public WebClient userServiceWebClient(WebClient.Builder builder) {
-        return builder.baseUrl("http://user-service")
+        return builder.clone().baseUrl("http://user-service")
+                .build();
+    }
+
+    @Bean
+    public WebClient activityServiceWebClient(WebClient.Builder builder) {
+        return builder.clone().baseUrl("http://activity-service")
+                .build();
+    }
+
+    @Bean
+    public WebClient aiServiceWebClient(WebClient.Builder builder) {
+        return builder.clone().baseUrl("http://ai-service")
                 .build();
     }
 }
@@ -0,0 +1,89 @@
+package com.fitness.gateway;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import com.fitness.gateway.metrics.GatewayLatencyMetrics;
+import com.fitness.gateway.user.PendingRegistrationQueue;
+import com.fitness.gateway.user.UserExistenceCache;
+import com.fitness.gateway.user.UserService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class KeycloakUserSyncFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserService userService = mock(UserService.class);
+    private final UserExistenceCache userExistenceCache = new UserExistenceCache(meterRegistry, 100,
+            Duration.ofMinutes(30), Duration.ofHours(24), 100, Duration.ofSeconds(30));
+    private final PendingRegistrationQueue pendingRegistrations = mock(PendingRegistrationQueue.class);
+    private final KeycloakUserSyncFilter filter = new KeycloakUserSyncFilter(userService, userExistenceCache,
+            pendingRegistrations, new GatewayLatencyMetrics(meterRegistry, new double[] { 0.5 },
+                    new Duration[] { Duration.ofMillis(100) }, Duration.ofSeconds(30)));
+
+    private final List<String> forwardedUserIds = new ArrayList<>();
+
+    @Test
+    void deferredRegistrationIsRememberedForTheTokenSubjectWhateverTheHeaderSays() {
+        when(userService.validateUser(anyString())).thenReturn(Mono.error(new IllegalStateException("down")));
+
+        sync("user-1", null);
+        sync("user-1", "profile-uuid");
+
+        verify(userService, times(1)).validateUser("user-1");
+        verify(pendingRegistrations).enqueue(any());
+        assertThat(userExistenceCache.isMissing("user-1")).isTrue();
+        assertThat(forwardedUserIds).containsExactly("user-1", "profile-uuid");
+    }
+
+    @Test
+    void validatedSubjectSkipsUserServiceOnTheNextRequest() {
+        when(userService.validateUser("user-1")).thenReturn(Mono.just(true));
+
+        sync("user-1", "profile-uuid");
+        sync("user-1", "profile-uuid");
+
+        verify(userService, times(1)).validateUser(anyString());
+        assertThat(userExistenceCache.isKnown("user-1")).isTrue();
+        assertThat(userExistenceCache.isKnown("profile-uuid")).isFalse();
+    }
+
+    private void sync(String subject, String userIdHeader) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/activities");
+        if (userIdHeader != null) {
+            request.header("X-User-Id", userIdHeader);
+        }
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(subject)
+                .claim("email", subject + "@example.com")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+
+        filter.filter(MockServerWebExchange.from(request), exchange -> {
+            forwardedUserIds.add(exchange.getRequest().getHeaders().getFirst("X-User-Id"));
+            return Mono.empty();
+        })
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JwtAuthenticationToken(jwt)))
+                .block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,104 @@
+package com.fitness.gateway.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class EtagResponseCacheGatewayFilterFactoryTests {
+
+    private static final String BODY = "[{\"activityId\":\"a1\",\"recommendation\":\"Keep going\"}]";
+
+    private final AtomicInteger backendCalls = new AtomicInteger();
+    private final GatewayFilter filter = new EtagResponseCacheGatewayFilterFactory(new SimpleMeterRegistry(),
+            DataSize.ofKilobytes(64), DataSize.ofBytes(1024))
+            .apply(new EtagResponseCacheGatewayFilterFactory.Config());
+
+    @Test
+    void servesRepeatsFromCacheAndAnswersConditionalRequestsWith304() {
+        MockServerWebExchange first = get(null);
+        filter.filter(first, backend(Duration.ZERO)).block();
+        String etag = first.getResponse().getHeaders().getETag();
+        assertThat(etag).startsWith("\"").endsWith("\"");
+        assertThat(first.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+
+        MockServerWebExchange second = get(null);
+        filter.filter(second, backend(Duration.ZERO)).block();
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+        assertThat(second.getResponse().getHeaders().getETag()).isEqualTo(etag);
+        assertThat(second.getResponse().getHeaders().getCacheControl()).isEqualTo("private, max-age=30");
+        assertThat(second.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+
+        MockServerWebExchange conditional = get(etag);
+        filter.filter(conditional, backend(Duration.ZERO)).block();
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        assertThat(backendCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void collapsesConcurrentIdenticalRequests() {
+        Flux.range(0, 5)
+                .flatMap(i -> {
+                    MockServerWebExchange exchange = get(null);
+                    return filter.filter(exchange, backend(Duration.ofMillis(200)))
+                            .then(Mono.defer(() -> exchange.getResponse().getBodyAsString()));
+                })
+                .doOnNext(body -> assertThat(body).isEqualTo(BODY))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertThat(backendCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void bodiesOverTheSizeLimitAreNotCached() {
+        String large = "x".repeat(2048);
+
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = get(null);
+            filter.filter(exchange, backend(Duration.ZERO, large)).block();
+            assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo(large);
+            assertThat(exchange.getResponse().getHeaders().getETag()).isNull();
+        }
+
+        assertThat(backendCalls.get()).isEqualTo(2);
+    }
+
+    private static MockServerWebExchange get(String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/recommendations/user/u1");
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private GatewayFilterChain backend(Duration latency) {
+        return backend(latency, BODY);
+    }
+
+    private GatewayFilterChain backend(Duration latency, String body) {
+        return exchange -> Mono.delay(latency).then(Mono.defer(() -> {
+            backendCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            exchange.getResponse().getHeaders().setCacheControl("private, max-age=30");
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+        }));
+    }
+}
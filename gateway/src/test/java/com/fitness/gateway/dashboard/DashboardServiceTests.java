@@ -0,0 +1,135 @@
+package com.fitness.gateway.dashboard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fitness.gateway.user.UserService;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class DashboardServiceTests {
+
+    private static final Duration LEG_TIMEOUT = Duration.ofSeconds(2);
+
+    @Test
+    void allLegsAnsweringFillTheWholeDashboard() {
+        DashboardResponse dashboard = dashboard(
+                respond("{\"keycloakId\":\"user-1\",\"firstName\":\"Ada\"}"),
+                respond("{\"content\":[{\"id\":\"a1\"}]}"),
+                respond("[{\"id\":\"r1\"}]"));
+
+        assertThat(dashboard.getProfile().getFirstName()).isEqualTo("Ada");
+        assertThat(dashboard.getActivities().path("content").get(0).path("id").asText()).isEqualTo("a1");
+        assertThat(dashboard.getRecommendations().get(0).path("id").asText()).isEqualTo("r1");
+        assertThat(dashboard.getErrors()).isNull();
+    }
+
+    @Test
+    void activitiesLegAsksForOnePageAndPassesOnTheNextPageToken() {
+        AtomicReference<URI> activitiesUri = new AtomicReference<>();
+        Mono<ClientResponse> page = Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header("X-Next-Page-Token", "next-token")
+                .body("[{\"id\":\"a1\"}]")
+                .build());
+
+        DashboardResponse dashboard = dashboard(
+                respond("{\"keycloakId\":\"user-1\",\"firstName\":\"Ada\"}"),
+                page,
+                respond("[]"),
+                activitiesUri);
+
+        assertThat(activitiesUri.get().getPath()).isEqualTo("/api/activities");
+        assertThat(activitiesUri.get().getQuery()).isEqualTo("size=20");
+        assertThat(dashboard.getActivities().get(0).path("id").asText()).isEqualTo("a1");
+        assertThat(dashboard.getActivitiesNextPageToken()).isEqualTo("next-token");
+    }
+
+    @Test
+    void slowLegTimesOutWhileTheOthersAreStillReturned() {
+        DashboardResponse dashboard = dashboard(
+                respond("{\"keycloakId\":\"user-1\",\"firstName\":\"Ada\"}"),
+                Mono.never(),
+                respond("[{\"id\":\"r1\"}]"));
+
+        assertThat(dashboard.getProfile().getFirstName()).isEqualTo("Ada");
+        assertThat(dashboard.getActivities()).isNull();
+        assertThat(dashboard.getRecommendations()).isNotNull();
+        assertThat(dashboard.getErrors()).containsOnlyKeys("activities");
+        assertThat(dashboard.getErrors()).containsEntry("activities", "timeout");
+    }
+
+    @Test
+    void failingLegIsReportedWhileTheOthersAreStillReturned() {
+        DashboardResponse dashboard = dashboard(
+                respond("{\"keycloakId\":\"user-1\",\"firstName\":\"Ada\"}"),
+                respond("{\"content\":[]}"),
+                Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+
+        assertThat(dashboard.getProfile().getFirstName()).isEqualTo("Ada");
+        assertThat(dashboard.getActivities()).isNotNull();
+        assertThat(dashboard.getRecommendations()).isNull();
+        assertThat(dashboard.getErrors()).containsOnlyKeys("recommendations");
+        assertThat(dashboard.getErrors()).containsEntry("recommendations", "500");
+    }
+
+    @Test
+    void unreachableLegIsReportedWithoutTheCause() {
+        DashboardResponse dashboard = dashboard(
+                respond("{\"keycloakId\":\"user-1\",\"firstName\":\"Ada\"}"),
+                Mono.error(new IllegalStateException("Connection refused: activity-service.internal/10.0.3.7:8082")),
+                respond("[{\"id\":\"r1\"}]"));
+
+        assertThat(dashboard.getActivities()).isNull();
+        assertThat(dashboard.getErrors()).containsExactlyEntriesOf(Map.of("activities", "unavailable"));
+    }
+
+    private static DashboardResponse dashboard(Mono<ClientResponse> profile, Mono<ClientResponse> activities,
+            Mono<ClientResponse> recommendations) {
+        return dashboard(profile, activities, recommendations, new AtomicReference<>());
+    }
+
+    private static DashboardResponse dashboard(Mono<ClientResponse> profile, Mono<ClientResponse> activities,
+            Mono<ClientResponse> recommendations, AtomicReference<URI> activitiesUri) {
+        UserService userService = new UserService(stub(profile), new SimpleMeterRegistry(),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), LEG_TIMEOUT, LEG_TIMEOUT,
+                LEG_TIMEOUT);
+        WebClient activityService = WebClient.builder()
+                .exchangeFunction(request -> {
+                    activitiesUri.set(request.url());
+                    return activities;
+                })
+                .build();
+        DashboardService dashboardService = new DashboardService(userService, activityService,
+                stub(recommendations), LEG_TIMEOUT, LEG_TIMEOUT, LEG_TIMEOUT, 20);
+
+        return dashboardService.getDashboard("user-1").block(Duration.ofSeconds(10));
+    }
+
+    private static WebClient stub(Mono<ClientResponse> response) {
+        return WebClient.builder()
+                .exchangeFunction(request -> response)
+                .build();
+    }
+
+    private static Mono<ClientResponse> respond(String json) {
+        return Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(json)
+                .build());
+    }
+}
@@ -0,0 +1,113 @@
+package com.fitness.gateway.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Runs the gateway's JWT decoding against a local stand-in for the Keycloak
+ * JWK set endpoint.
+ */
+class CachingReactiveJwtDecoderTests {
+
+    private final AtomicReference<String> publishedKeys = new AtomicReference<>();
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DisposableServer keycloak;
+    private RefreshingJwkSource jwkSource;
+    private CachingReactiveJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        keycloak = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/certs", (request, response) -> {
+                    jwksRequests.incrementAndGet();
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.fromSupplier(publishedKeys::get));
+                }))
+                .bindNow();
+
+        jwkSource = new RefreshingJwkSource(WebClient.create(), "http://localhost:" + keycloak.port() + "/certs",
+                Duration.ofMinutes(5), Duration.ZERO, Duration.ofSeconds(2), true, meterRegistry);
+        decoder = new CachingReactiveJwtDecoder(NimbusReactiveJwtDecoder.withJwkSource(jwkSource::select).build(),
+                meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwkSource.stop();
+        keycloak.disposeNow();
+    }
+
+    @Test
+    void verifiesEachTokenOnceAndServesRepeatsFromCache() throws Exception {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        publishedKeys.set(new JWKSet(key.toPublicJWK()).toString());
+        String token = sign(key, "user-1");
+
+        for (int i = 0; i < 5; i++) {
+            Jwt jwt = decoder.decode(token).block(Duration.ofSeconds(5));
+            assertThat(jwt.getSubject()).isEqualTo("user-1");
+        }
+
+        assertThat(jwksRequests.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.jwt.decode").tag("source", "verified").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.jwt.decode").tag("source", "cache").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    void picksUpRotatedKeysAndKeepsServingOldOnesWhenKeycloakIsDown() throws Exception {
+        RSAKey oldKey = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        publishedKeys.set(new JWKSet(oldKey.toPublicJWK()).toString());
+        decoder.decode(sign(oldKey, "user-1")).block(Duration.ofSeconds(5));
+
+        RSAKey newKey = new RSAKeyGenerator(2048).keyID("key-2").generate();
+        publishedKeys.set(new JWKSet(newKey.toPublicJWK()).toString());
+        assertThat(decoder.decode(sign(newKey, "user-2")).block(Duration.ofSeconds(5)).getSubject())
+                .isEqualTo("user-2");
+
+        // With the identity provider gone, the previously loaded keys are still used
+        keycloak.disposeNow();
+        assertThat(decoder.decode(sign(newKey, "user-3")).block(Duration.ofSeconds(5)).getSubject())
+                .isEqualTo("user-3");
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    private static String sign(RSAKey key, String subject) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
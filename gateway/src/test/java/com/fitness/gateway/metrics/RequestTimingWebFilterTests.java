@@ -0,0 +1,105 @@
+package com.fitness.gateway.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+class RequestTimingWebFilterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GatewayLatencyMetrics latencyMetrics = new GatewayLatencyMetrics(meterRegistry,
+            new double[] { 0.5, 0.99 }, new Duration[] { Duration.ofMillis(100), Duration.ofMillis(50) },
+            Duration.ofSeconds(30));
+    private final RequestTimingWebFilter webFilter = new RequestTimingWebFilter(latencyMetrics);
+    private final RouteTimingGlobalFilter globalFilter = new RouteTimingGlobalFilter(latencyMetrics);
+
+    @Test
+    void recordsEveryPhaseForRoutedRequest() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/activities"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("activity-service").uri(URI.create("lb://ACTIVITY-SERVICE")).predicate(e -> true).build());
+
+        // Security and user sync, then the route with a slow backend
+        webFilter.filter(exchange, e -> busyFor(Duration.ofMillis(20))
+                .then(Mono.defer(() -> globalFilter.filter(e, routed -> busyFor(Duration.ofMillis(60))
+                        .then(Mono.fromRunnable(() -> routed.getResponse().setStatusCode(HttpStatus.CREATED)))))))
+                .block(Duration.ofSeconds(5));
+
+        Timer preRoute = timer("activity-service", "2xx", GatewayLatencyMetrics.PHASE_PRE_ROUTE);
+        Timer route = timer("activity-service", "2xx", GatewayLatencyMetrics.PHASE_ROUTE);
+        Timer total = timer("activity-service", "2xx", GatewayLatencyMetrics.PHASE_TOTAL);
+
+        assertThat(preRoute.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+        assertThat(route.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(60);
+        // Not compared with route: the outer filter's doFinally runs first, so its clock stops a little earlier
+        assertThat(total.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(80);
+        assertThat(total.takeSnapshot().percentileValues()).hasSize(2);
+        assertThat(total.takeSnapshot().histogramCounts())
+                .anySatisfy(bucket -> assertThat(bucket.bucket(TimeUnit.MILLISECONDS))
+                        .isEqualTo(100));
+    }
+
+    @Test
+    void tagsUnroutedErrorsByTheStatusTheyWillBecome() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/dashboard"));
+
+        webFilter.filter(exchange, e -> Mono.error(new IllegalStateException("boom")))
+                .onErrorComplete()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(timer(RequestTimingWebFilter.NO_ROUTE, "5xx", GatewayLatencyMetrics.PHASE_TOTAL).count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.find(GatewayLatencyMetrics.REQUEST_LATENCY)
+                .tag("phase", GatewayLatencyMetrics.PHASE_PRE_ROUTE).timer()).isNull();
+    }
+
+    @Test
+    void tagsRequestsTheClientHungUpOnAsCancelled() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/activities"));
+
+        webFilter.filter(exchange, e -> globalFilter.filter(e, routed -> Mono.never()))
+                .subscribe()
+                .dispose();
+
+        assertThat(timer(RequestTimingWebFilter.NO_ROUTE, GatewayLatencyMetrics.STATUS_CANCELLED,
+                GatewayLatencyMetrics.PHASE_TOTAL).count()).isEqualTo(1);
+        assertThat(timer(RequestTimingWebFilter.NO_ROUTE, GatewayLatencyMetrics.STATUS_CANCELLED,
+                GatewayLatencyMetrics.PHASE_ROUTE).count()).isEqualTo(1);
+    }
+
+    @Test
+    void reusesTheTimerOfARouteStatusAndPhase() {
+        latencyMetrics.recordRequest("activity-service", "2xx", GatewayLatencyMetrics.PHASE_TOTAL, 1_000_000);
+        latencyMetrics.recordRequest("activity-service", "2xx", GatewayLatencyMetrics.PHASE_TOTAL, 3_000_000);
+
+        Timer total = timer("activity-service", "2xx", GatewayLatencyMetrics.PHASE_TOTAL);
+        assertThat(total.count()).isEqualTo(2);
+        assertThat(total.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(4);
+    }
+
+    // Runs on the subscribing thread, so the timers are recorded by the time block() returns
+    private static Mono<Void> busyFor(Duration duration) {
+        return Mono.fromCallable(() -> {
+            Thread.sleep(duration.toMillis());
+            return duration;
+        }).then();
+    }
+
+    private Timer timer(String route, String status, String phase) {
+        return meterRegistry.get(GatewayLatencyMetrics.REQUEST_LATENCY)
+                .tag("route", route).tag("status", status).tag("phase", phase).timer();
+    }
+}
@@ -0,0 +1,47 @@
+package com.fitness.gateway.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.http.HttpHeaders;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LocalRateLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalRateLimiter rateLimiter = new LocalRateLimiter(null, meterRegistry, 1, 3, 1000,
+            Duration.ofMinutes(10));
+
+    @Test
+    void admitsBurstThenRejectsWithRetryAfter() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.isAllowed("activity-service", "user-1").block().isAllowed()).isTrue();
+        }
+
+        Response rejected = rateLimiter.isAllowed("activity-service", "user-1").block();
+        assertThat(rejected.isAllowed()).isFalse();
+        assertThat(rejected.getHeaders()).containsEntry(HttpHeaders.RETRY_AFTER, "1");
+
+        // Buckets are per user and per route
+        assertThat(rateLimiter.isAllowed("activity-service", "user-2").block().isAllowed()).isTrue();
+        assertThat(rateLimiter.isAllowed("ai-service", "user-1").block().isAllowed()).isTrue();
+
+        assertThat(meterRegistry.get("gateway.ratelimit.requests")
+                .tag("route", "activity-service").tag("result", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void usesPerRouteConfiguration() {
+        LocalRateLimiter.Config strict = new LocalRateLimiter.Config();
+        strict.setReplenishRate(1);
+        strict.setBurstCapacity(1);
+        rateLimiter.getConfig().put("ai-service", strict);
+
+        assertThat(rateLimiter.isAllowed("ai-service", "user-1").block().isAllowed()).isTrue();
+        assertThat(rateLimiter.isAllowed("ai-service", "user-1").block().isAllowed()).isFalse();
+    }
+}
@@ -0,0 +1,87 @@
+package com.fitness.gateway.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class UserServiceTests {
+
+    @Test
+    void concurrentValidationsForSameUserShareOneCall() {
+        AtomicInteger calls = new AtomicInteger();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    calls.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100))
+                            .map(tick -> ClientResponse.create(HttpStatus.OK)
+                                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .body("true")
+                                    .build());
+                })
+                .build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserService userService = new UserService(webClient, meterRegistry, CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.ofDefaults(), Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        List<Boolean> results = Flux.range(0, 10)
+                .flatMap(i -> userService.validateUser("user-1"))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results).hasSize(10).containsOnly(true);
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.user.service.calls")
+                .tag("operation", "validate").tag("result", "coalesced").counter().count()).isEqualTo(9);
+
+        // Once the shared call has finished, the next burst goes to user-service again
+        userService.validateUser("user-1").block(Duration.ofSeconds(5));
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void openCircuitStopsCallingUserService() {
+        AtomicInteger calls = new AtomicInteger();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    calls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                })
+                .build();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        UserService userService = new UserService(webClient, new SimpleMeterRegistry(), circuitBreakerRegistry,
+                BulkheadRegistry.ofDefaults(), Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> userService.validateUser("user-1").block(Duration.ofSeconds(5)))
+                    .satisfies(ex -> assertThat(UserService.isUnavailableError(ex)).isTrue());
+        }
+        assertThat(userService.isUnavailable()).isTrue();
+
+        assertThatThrownBy(() -> userService.validateUser("user-1").block(Duration.ofSeconds(5)))
+                .isInstanceOf(CallNotPermittedException.class)
+                .satisfies(ex -> assertThat(UserService.isUnavailableError(ex)).isTrue());
+        assertThat(calls.get()).isEqualTo(4);
+    }
+}
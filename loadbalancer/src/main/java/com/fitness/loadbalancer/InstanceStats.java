@@ -0,0 +1,74 @@
+package com.fitness.loadbalancer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and load of a single service instance as seen from this process.
+ * Latency is an exponentially weighted moving average that fades out while
+ * the instance receives no traffic, so a node that was slow once is
+ * eventually probed again instead of being starved forever.
+ */
+public class InstanceStats {
+
+    private final String serviceId;
+    private final String instanceId;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // Guarded by this
+    private double ewmaNanos;
+    private long lastSampleNanos;
+
+    public InstanceStats(String serviceId, String instanceId) {
+        this.serviceId = serviceId;
+        this.instanceId = instanceId;
+    }
+
+    void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    void requestEnded() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordSample(long latencyNanos, boolean failed, double alpha) {
+        requests.incrementAndGet();
+        if (failed) {
+            failures.incrementAndGet();
+        }
+        synchronized (this) {
+            ewmaNanos = lastSampleNanos == 0 ? latencyNanos : ewmaNanos + alpha * (latencyNanos - ewmaNanos);
+            lastSampleNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Expected cost of sending one more request here: the decayed latency
+     * estimate scaled by the number of requests already queued on the node.
+     */
+    double cost(long decayNanos) {
+        return decayedEwmaNanos(decayNanos) * (inFlight.get() + 1);
+    }
+
+    private synchronized double decayedEwmaNanos(long decayNanos) {
+        if (lastSampleNanos == 0) {
+            return 0;
+        }
+        long idle = System.nanoTime() - lastSampleNanos;
+        return ewmaNanos * Math.exp(-(double) idle / decayNanos);
+    }
+
+    public Snapshot snapshot(long decayNanos) {
+        return new Snapshot(serviceId, instanceId, inFlight.get(),
+                decayedEwmaNanos(decayNanos) / TimeUnit.MILLISECONDS.toNanos(1), requests.get(), failures.get());
+    }
+
+    public record Snapshot(String serviceId, String instanceId, int inFlight, double latencyEwmaMillis,
+            long requests, long failures) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.fitness.loadbalancer;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+
+/**
+ * Collects per-instance latency and in-flight counts for every load balanced
+ * call made by this process, whether it comes from a gateway {@code lb://}
+ * route or a {@code @LoadBalanced} WebClient.
+ */
+public class InstanceStatsRegistry implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final ConcurrentMap<String, InstanceStats> stats = new ConcurrentHashMap<>();
+    private final double alpha;
+    private final long decayNanos;
+    private final long failurePenaltyNanos;
+
+    public InstanceStatsRegistry(double alpha, Duration decay, Duration failurePenalty) {
+        this.alpha = alpha;
+        this.decayNanos = decay.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+    }
+
+    public InstanceStats statsFor(ServiceInstance instance) {
+        String instanceId = instanceId(instance);
+        return stats.computeIfAbsent(instance.getServiceId() + "/" + instanceId,
+                key -> new InstanceStats(instance.getServiceId(), instanceId));
+    }
+
+    public double cost(ServiceInstance instance) {
+        return statsFor(instance).cost(decayNanos);
+    }
+
+    public List<InstanceStats.Snapshot> snapshot() {
+        return stats.values().stream()
+                .map(instanceStats -> instanceStats.snapshot(decayNanos))
+                .sorted(Comparator.comparing(InstanceStats.Snapshot::serviceId)
+                        .thenComparing(InstanceStats.Snapshot::instanceId))
+                .toList();
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(System.nanoTime());
+        }
+        if (lbResponse != null && lbResponse.hasServer()) {
+            statsFor(lbResponse.getServer()).requestStarted();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceStats instanceStats = statsFor(lbResponse.getServer());
+        // Always balance onStartRequest, even when there is no latency to record
+        instanceStats.requestEnded();
+        if (completionContext.status() == CompletionContext.Status.DISCARD
+                || !(completionContext.getLoadBalancerRequest().getContext() instanceof TimedRequestContext context)
+                || context.getRequestStartTime() <= 0) {
+            return;
+        }
+
+        long latency = System.nanoTime() - context.getRequestStartTime();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED;
+        // Errors are often fast, so penalise them or a broken node would look like the best one
+        instanceStats.recordSample(failed ? Math.max(latency, failurePenaltyNanos) : latency, failed, alpha);
+    }
+
+    private static String instanceId(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+}
@@ -0,0 +1,41 @@
+package com.fitness.loadbalancer;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Makes the latency-aware balancer the default for every load balanced
+ * client of the application that has this jar on its classpath.
+ */
+@AutoConfiguration
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfig.class)
+public class LoadBalancerConfig {
+
+    @Value("${loadbalancer.latency-aware.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+    @Value("${loadbalancer.latency-aware.decay:10s}")
+    private Duration decay;
+    @Value("${loadbalancer.latency-aware.failure-penalty:1s}")
+    private Duration failurePenalty;
+
+    @Bean
+    public InstanceStatsRegistry instanceStatsRegistry() {
+        return new InstanceStatsRegistry(ewmaAlpha, decay, failurePenalty);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class StatsEndpointConfig {
+
+        @Bean
+        public LoadBalancerStatsEndpoint loadBalancerStatsEndpoint(InstanceStatsRegistry instanceStatsRegistry) {
+            return new LoadBalancerStatsEndpoint(instanceStatsRegistry);
+        }
+    }
+}
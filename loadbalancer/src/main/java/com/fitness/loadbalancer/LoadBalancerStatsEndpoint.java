@@ -0,0 +1,24 @@
+package com.fitness.loadbalancer;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Exposes per-instance load balancer stats at {@code /actuator/loadbalancer}.
+ */
+@Endpoint(id = "loadbalancer")
+public class LoadBalancerStatsEndpoint {
+
+    private final InstanceStatsRegistry instanceStatsRegistry;
+
+    public LoadBalancerStatsEndpoint(InstanceStatsRegistry instanceStatsRegistry) {
+        this.instanceStatsRegistry = instanceStatsRegistry;
+    }
+
+    @ReadOperation
+    public List<InstanceStats.Snapshot> instances() {
+        return instanceStatsRegistry.snapshot();
+    }
+}
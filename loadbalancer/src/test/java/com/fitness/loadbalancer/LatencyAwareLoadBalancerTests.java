@@ -0,0 +1,131 @@
+package com.fitness.loadbalancer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultRequestContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Local multi-instance harness: three stand-in backends, one of them slow,
+ * driven through the default round robin balancer and the latency-aware one
+ * with the same concurrent load.
+ */
+class LatencyAwareLoadBalancerTests {
+
+    private static final String SERVICE_ID = "activity-service";
+    private static final int CONCURRENCY = 8;
+    private static final int WARMUP_REQUESTS = 100;
+    private static final int MEASURED_REQUESTS = 600;
+
+    private final List<DisposableServer> backends = new ArrayList<>();
+    private final WebClient webClient = WebClient.create();
+    private ServiceInstance[] instances;
+
+    @BeforeEach
+    void startBackends() {
+        long[] delaysMillis = { 5, 5, 100 };
+        instances = new ServiceInstance[delaysMillis.length];
+        for (int i = 0; i < delaysMillis.length; i++) {
+            Duration delay = Duration.ofMillis(delaysMillis[i]);
+            DisposableServer server = HttpServer.create()
+                    .port(0)
+                    .handle((request, response) -> response.sendString(Mono.just("ok").delayElement(delay)))
+                    .bindNow();
+            backends.add(server);
+            instances[i] = new DefaultServiceInstance(SERVICE_ID + "-" + i, SERVICE_ID, "localhost", server.port(),
+                    false);
+        }
+    }
+
+    @AfterEach
+    void stopBackends() {
+        backends.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    void cutsTailLatencyComparedToRoundRobin() {
+        InstanceStatsRegistry statsRegistry = new InstanceStatsRegistry(0.3, Duration.ofSeconds(10),
+                Duration.ofSeconds(1));
+
+        List<Long> roundRobin = run(new RoundRobinLoadBalancer(
+                ServiceInstanceListSuppliers.toProvider(SERVICE_ID, instances), SERVICE_ID), statsRegistry);
+        List<Long> latencyAware = run(new LatencyAwareLoadBalancer(
+                ServiceInstanceListSuppliers.toProvider(SERVICE_ID, instances), SERVICE_ID, statsRegistry),
+                statsRegistry);
+
+        assertThat(percentile(latencyAware, 0.99)).isLessThan(percentile(roundRobin, 0.99) / 2);
+        assertThat(statsRegistry.snapshot()).extracting(InstanceStats.Snapshot::inFlight).containsOnly(0);
+    }
+
+    @Test
+    void releasesInFlightWhenTheRequestIsNotTimed() {
+        InstanceStatsRegistry statsRegistry = new InstanceStatsRegistry(0.3, Duration.ofSeconds(10),
+                Duration.ofSeconds(1));
+        Request<Object> request = new DefaultRequest<>("untimed");
+        Response<ServiceInstance> response = new DefaultResponse(instances[0]);
+
+        statsRegistry.onStartRequest(request, response);
+        statsRegistry.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response));
+
+        assertThat(statsRegistry.snapshot()).singleElement()
+                .satisfies(snapshot -> {
+                    assertThat(snapshot.inFlight()).isZero();
+                    assertThat(snapshot.requests()).isZero();
+                });
+    }
+
+    private List<Long> run(ReactorServiceInstanceLoadBalancer loadBalancer, InstanceStatsRegistry statsRegistry) {
+        Flux.range(0, WARMUP_REQUESTS)
+                .flatMap(i -> call(loadBalancer, statsRegistry), CONCURRENCY)
+                .blockLast(Duration.ofSeconds(60));
+
+        return Flux.range(0, MEASURED_REQUESTS)
+                .flatMap(i -> call(loadBalancer, statsRegistry), CONCURRENCY)
+                .collectList()
+                .block(Duration.ofSeconds(120));
+    }
+
+    private Mono<Long> call(ReactorServiceInstanceLoadBalancer loadBalancer, InstanceStatsRegistry statsRegistry) {
+        Request<Object> request = new DefaultRequest<>(new DefaultRequestContext());
+        return Mono.from(loadBalancer.choose(request)).flatMap(response -> {
+            statsRegistry.onStartRequest(request, response);
+            long start = System.nanoTime();
+            return webClient.get()
+                    .uri(response.getServer().getUri())
+                    .retrieve()
+                    .toBodilessEntity()
+                    .doOnSuccess(entity -> statsRegistry.onComplete(
+                            new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response)))
+                    .map(entity -> Duration.ofNanos(System.nanoTime() - start).toMillis());
+        });
+    }
+
+    private static long percentile(List<Long> latencies, double percentile) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+    }
+}
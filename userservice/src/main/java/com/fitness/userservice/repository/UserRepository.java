@@ -1,5 +1,6 @@
 package com.fitness.userservice.repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -12,4 +13,6 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Boolean existsByKeycloakId(String userId);
 
     User findByEmail(String email);
+
+    Optional<User> findByKeycloakId(String keycloakId);
 }
@@ -1,6 +1,7 @@
 package com.fitness.userservice.services;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -77,7 +78,10 @@ public class UserService {
     }
 
     public UserResponse getUserProfile(String id) {
-        User user = repository.findById(UUID.fromString(id))
+        // Callers behind the gateway only know the keycloak ID, so accept either
+        User user = parseUuid(id)
+                .flatMap(repository::findById)
+                .or(() -> repository.findByKeycloakId(id))
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
 
         UserResponse userResponse = new UserResponse();
@@ -92,6 +96,15 @@ public class UserService {
         return userResponse;
     }
 
+    // Keycloak IDs are not always UUIDs, and those must still reach the keycloak lookup
+    private static Optional<UUID> parseUuid(String id) {
+        try {
+            return Optional.of(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     public Boolean existsByUserId(String userId) {
         return repository.existsByKeycloakId(userId);
     }